@@ -44,7 +44,12 @@ android {
     lint {
         baseline = file("lint-baseline.xml")
     }
+
+    // The animations are plain Java other than the main thread checks and the Choreographer.
+    testOptions { unitTests.isReturnDefaultValues = true }
 }
 
 dependencies {
+    implementation(project(":synth"))
+    testImplementation(libs.junit)
 }
@@ -1,16 +1,16 @@
 package io.github.ebraminio.bouncy;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.content.res.ColorStateList;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.RuntimeShader;
 import android.graphics.drawable.RippleDrawable;
-import android.media.AudioFormat;
-import android.media.AudioManager;
-import android.media.AudioTrack;
 import android.os.Build;
+import android.os.Process;
 import android.util.Log;
 import android.view.GestureDetector;
 import android.view.HapticFeedbackConstants;
@@ -20,32 +20,66 @@ import android.view.View;
 
 import org.intellij.lang.annotations.Language;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-import io.github.ebraminio.bouncy.animation.FlingAnimation;
+import io.github.ebraminio.bouncy.animation.BallSystem;
+import io.github.ebraminio.bouncy.animation.DynamicAnimation;
+import io.github.ebraminio.bouncy.animation.Fling2DAnimation;
 import io.github.ebraminio.bouncy.animation.FloatValueHolder;
+import io.github.ebraminio.bouncy.animation.SpringAnimation;
+import io.github.ebraminio.bouncy.animation.SpringForce;
+import io.github.ebraminio.bouncy.animation.Trajectory;
+import io.github.ebraminio.bouncy.audio.AudioEngine;
+import io.github.ebraminio.bouncy.audio.AudioExecutor;
+import io.github.ebraminio.bouncy.audio.LatencyTracker;
+import io.github.ebraminio.bouncy.audio.NoteWarmup;
+import io.github.ebraminio.bouncy.audio.StaticTrackPool;
+import io.github.ebraminio.bouncy.synth.GuitarString;
+import io.github.ebraminio.bouncy.synth.Mixer;
+import io.github.ebraminio.bouncy.synth.NoteBank;
+import io.github.ebraminio.bouncy.synth.NoteCache;
+import io.github.ebraminio.bouncy.synth.OfflineRenderer;
+import io.github.ebraminio.bouncy.synth.Reverb;
+import io.github.ebraminio.bouncy.synth.SampleVoice;
+import io.github.ebraminio.bouncy.synth.Session;
+import io.github.ebraminio.bouncy.synth.Voice;
+import io.github.ebraminio.bouncy.synth.Wavetable;
 
 class Bouncy extends View {
+    private static final String TAG = "Bouncy";
     private final FloatValueHolder x = new FloatValueHolder();
-    private final FlingAnimation horizontalFling = new FlingAnimation(x);
     private final FloatValueHolder y = new FloatValueHolder();
-    private final FlingAnimation verticalFling = new FlingAnimation(y);
+    private final Fling2DAnimation fling = new Fling2DAnimation(x, y);
+    // Scale of the ball, squashed on impact and settling back to 1
+    private final FloatValueHolder squash = new FloatValueHolder(1);
+    private final SpringAnimation squashSpring = new SpringAnimation(squash);
+    // Each fling adds a ball to it instead of flinging the big ball, toggled with B
+    private final BallSystem balls = new BallSystem(maxBalls, 1);
+    private boolean multiBall = false;
     private final GestureDetector flingDetector = Build.VERSION.SDK_INT >= Build.VERSION_CODES.CUPCAKE ?
             new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
                 @Override
                 public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-                    horizontalFling.setStartVelocity(velocityX).start();
-                    verticalFling.setStartVelocity(velocityY).start();
+                    if (multiBall) {
+                        balls.addBall(e2.getX(), e2.getY(), velocityX, velocityY);
+                        return true;
+                    }
+                    fling.setStartVelocity(velocityX, velocityY).start();
+                    scheduleNextHit();
                     return true;
                 }
             }) : null;
     private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint ballPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private RuntimeShader shader;
     private float r = 0;
     private float previousX = 0;
     private float previousY = 0;
-    private float storedVelocityX = 0;
-    private float storedVelocityY = 0;
     private final RippleDrawable rippleDrawable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ?
             new RippleDrawable(ColorStateList.valueOf(Color.WHITE), null, null) : null;
 
@@ -54,19 +88,56 @@ class Bouncy extends View {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             setBackground(rippleDrawable);
         }
-        horizontalFling.addUpdateListener((a, v, velocity) -> {
-            storedVelocityX = velocity;
-            invalidate();
-        });
-        verticalFling.addUpdateListener((a, v, velocity) -> {
-            storedVelocityY = velocity;
-            invalidate();
-        });
+        fling.setFixedTimeStep(physicsTimeStep);
+        fling.addUpdateListener((a, valueX, valueY, velocityX, velocityY) -> onFlingUpdate());
+        fling.addWallHitListener((a, hitX, hitY, velocityX, velocityY, time) ->
+                onWallHit(hitX, hitY, (float) Math.hypot(velocityX, velocityY), time, true));
+        squashSpring.setSpring(new SpringForce(1)
+                        .setStiffness(SpringForce.STIFFNESS_MEDIUM)
+                        .setDampingRatio(SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY))
+                .setMinimumVisibleChange(DynamicAnimation.MIN_VISIBLE_CHANGE_SCALE)
+                .setMinValue(.5f)
+                // Same step every time, so the spring reuses its transition matrix.
+                .setFixedTimeStep(physicsTimeStep)
+                .addUpdateListener((a, value, velocity) -> invalidate());
+        balls.setFixedTimeStep(physicsTimeStep);
+        balls.addUpdateListener(system -> invalidate());
+        balls.addHitListener((system, ball, other, hitX, hitY, speed, time) -> onBallHit(hitX, hitY, speed, time));
         paint.setColor(Color.GRAY);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
             paint.setColor(context.getColor(android.R.color.system_accent1_500));
         }
+        ballPaint.setColor(paint.getColor());
         setFocusable(true);
+        audioEngine = AudioEngine.getInstance(context);
+        final var mixer = audioEngine.getMixer();
+        mixer.setMaxVoices(8);
+        mixer.setStealPolicy(Mixer.StealPolicy.SAME_NOTE);
+        // Low RAM devices play the wavetable live, nothing is synthesized up front or kept around.
+        useWavetable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && ((ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE)).isLowRamDevice();
+        // Without a low latency streaming path a static track per note starts sooner.
+        staticTrackPool = !useWavetable && Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD
+                && !context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_AUDIO_LOW_LATENCY)
+                ? new StaticTrackPool(audioEngine.getSampleRate()) : null;
+        // Low RAM devices are also spared the reverb's delay lines and processing.
+        reverb = useWavetable ? null : new Reverb(audioEngine.getSampleRate(), mixer.getBlockSize());
+        if (reverb != null) reverb.setSend(reverbSends[counter % reverbSends.length]);
+        mixer.setReverb(reverb);
+        if (useWavetable) {
+            noteWarmup = null;
+        } else {
+            final var notesDirectory = new File(context.getFilesDir(), "notes");
+            noteWarmup = staticTrackPool == null
+                    ? new NoteWarmup(noteCache, GuitarString.DEFAULT, audioEngine.getSampleRate(), noteDuration)
+                    : null;
+            noteBankExecutor.execute(() -> {
+                noteCache.setNoteBank(new NoteBank(notesDirectory), noteBankExecutor);
+                // After the bank is opened, so notes stored by an earlier run are just mapped.
+                if (noteWarmup != null) noteWarmup.start(diatonicScale);
+                else loadStaticTracks();
+            });
+        }
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             shader = new RuntimeShader(shaderSource);
             paint.setShader(shader);
@@ -78,14 +149,28 @@ class Bouncy extends View {
         if (event.getAction() != KeyEvent.ACTION_DOWN) return false;
         switch (event.getKeyCode()) {
             case KeyEvent.KEYCODE_W, KeyEvent.KEYCODE_DPAD_UP ->
-                    verticalFling.setStartVelocity(-4500).start();
+                    fling.setStartVelocity(fling.getVelocityX(), -4500).start();
             case KeyEvent.KEYCODE_S, KeyEvent.KEYCODE_DPAD_DOWN ->
-                    verticalFling.setStartVelocity(4500).start();
+                    fling.setStartVelocity(fling.getVelocityX(), 4500).start();
             case KeyEvent.KEYCODE_A, KeyEvent.KEYCODE_DPAD_LEFT ->
-                    horizontalFling.setStartVelocity(-4500).start();
+                    fling.setStartVelocity(-4500, fling.getVelocityY()).start();
             case KeyEvent.KEYCODE_D, KeyEvent.KEYCODE_DPAD_RIGHT ->
-                    horizontalFling.setStartVelocity(4500).start();
+                    fling.setStartVelocity(4500, fling.getVelocityY()).start();
+            case KeyEvent.KEYCODE_E -> {
+                exportSession();
+                return true;
+            }
+            case KeyEvent.KEYCODE_B -> {
+                multiBall = !multiBall;
+                if (!multiBall) balls.clear();
+                invalidate();
+                return true;
+            }
+            default -> {
+                return true;
+            }
         }
+        scheduleNextHit();
         return true;
     }
 
@@ -95,6 +180,9 @@ class Bouncy extends View {
         x.setValue(w / 2f);
         y.setValue(h / 2f);
         r = Math.min(w, h) / 20f;
+        fling.setWalls(r, r, w - r, h - r);
+        final var ballRadius = r / 4;
+        balls.setRadius(ballRadius).setWalls(ballRadius, ballRadius, w - ballRadius, h - ballRadius);
     }
 
     @Language("AGSL")
@@ -132,55 +220,46 @@ class Bouncy extends View {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             shader.setFloatUniform("center", x.getValue(), y.getValue());
             shader.setFloatUniform("bounds", getWidth(), getHeight());
-            shader.setFloatUniform("radius", r);
+            shader.setFloatUniform("radius", r * squash.getValue());
             shader.setColorUniform("color", paint.getColor());
             shader.setIntUniform("mode", counter % 3);
             canvas.drawPaint(paint);
         } else {
-            canvas.drawCircle(x.getValue(), y.getValue(), r, paint);
-        }
-        var isWallHit = false;
-        if (x.getValue() < r) {
-            x.setValue(r);
-            horizontalFling.cancel();
-            horizontalFling.setStartVelocity(-storedVelocityX).start();
-            isWallHit = true;
-        }
-        if (x.getValue() > getWidth() - r) {
-            x.setValue(getWidth() - r);
-            horizontalFling.cancel();
-            horizontalFling.setStartVelocity(-storedVelocityX).start();
-            isWallHit = true;
-        }
-        if (y.getValue() < r) {
-            y.setValue(r);
-            verticalFling.cancel();
-            verticalFling.setStartVelocity(-storedVelocityY).start();
-            isWallHit = true;
+            canvas.drawCircle(x.getValue(), y.getValue(), r * squash.getValue(), paint);
         }
-        if (y.getValue() > getHeight() - r) {
-            y.setValue(getHeight() - r);
-            verticalFling.cancel();
-            verticalFling.setStartVelocity(-storedVelocityY).start();
-            isWallHit = true;
+        final var ballRadius = balls.getRadius();
+        for (var i = 0; i < balls.getBallCount(); ++i) {
+            canvas.drawCircle(balls.getX(i), balls.getY(i), ballRadius, ballPaint);
         }
-        if (isWallHit) onWallHit();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (noteWarmup != null) noteWarmup.cancel();
+        if (staticTrackPool != null) staticTrackPool.release();
+        if (audioEngine.getMixer().getReverb() == reverb) audioEngine.getMixer().setReverb(null);
+        cancelScheduledHit();
+        balls.clear();
     }
 
     @Override
     public boolean dispatchTouchEvent(MotionEvent event) {
         flingDetector.onTouchEvent(event);
+        // The big ball stays where it is while balls are flung.
+        if (multiBall) return true;
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN -> {
-                horizontalFling.cancel();
-                verticalFling.cancel();
+                fling.cancel();
+                cancelScheduledHit();
                 previousX = event.getX();
                 previousY = event.getY();
             }
 
             case MotionEvent.ACTION_MOVE -> {
-                x.setValue(x.getValue() + event.getX() - previousX);
-                y.setValue(y.getValue() + event.getY() - previousY);
+                // Kept within the walls, so a fling always starts between them.
+                x.setValue(Math.max(r, Math.min(getWidth() - r, x.getValue() + event.getX() - previousX)));
+                y.setValue(Math.max(r, Math.min(getHeight() - r, y.getValue() + event.getY() - previousY)));
                 previousX = event.getX();
                 previousY = event.getY();
                 invalidate();
@@ -190,108 +269,237 @@ class Bouncy extends View {
     }
 
     private final int[] diatonicScale = {0, 2, 4, 5, 7, 9, 11, 12, 11, 9, 7, 5, 4, 2};
+    // Hits of the big ball, which pick its notes, the shader mode and the reverb send. The balls
+    // go up the scale on their own, so the note scheduled for the big ball's next hit stays its
+    // next note.
     private int counter = 0;
+    private int ballCounter = 0;
     private final Random random = new Random();
+    private final AudioEngine audioEngine;
+    private final NoteWarmup noteWarmup;
+    private final StaticTrackPool staticTrackPool;
+    private final Reverb reverb;
+    // Reverb send for each of the shader modes, the box ones sound like a room
+    private static final float[] reverbSends = {0, .3f, .5f};
+    private final boolean useWavetable;
+    private static final double noteDuration = 4;
+    // Nanoseconds, the ball moves the same at any frame rate and through dropped frames. At 240Hz
+    // the same whole number of steps fits in every frame on 60 and 120Hz displays.
+    private static final long physicsTimeStep = 1_000_000_000 / 240;
+    private static final int maxBalls = 2048;
+    // Nanoseconds, hits of the balls closer than this to the last played one are only seen
+    private static final long minimumBallHitInterval = 30_000_000;
+    private long lastBallHitTime = 0;
+    // Scale per second the ball starts shrinking with when it hits at full gain speed
+    private static final float squashVelocity = 8;
+    private static final float minimumGain = .2f;
+    // Impact speed in pixels per second that plays notes at full gain
+    private static final float fullGainSpeed = 5000;
+    // Enough for every distinct note of the scale at the default duration
+    private static final NoteCache noteCache = new NoteCache(4 * 1024 * 1024);
+    private static final Executor noteBankExecutor = Executors.newSingleThreadExecutor();
+    // Start notes that aren't cached yet while they are being synthesized
+    private static final boolean progressiveSynthesis = true;
+    private static final AudioExecutor audioExecutor =
+            new AudioExecutor(2, 4, AudioExecutor.OverflowPolicy.COALESCE);
+    // How far from its predicted time a hit can happen and still be the one that was scheduled,
+    // both come from the same closed form so they only differ by rounding.
+    private static final long scheduledHitTolerance = 10_000_000;
+    private ScheduledNote scheduledNote;
+    private final Trajectory.State predictedHit = new Trajectory.State();
 
-    private void onWallHit() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            rippleDrawable.setColor(ColorStateList.valueOf(Color.argb(0x10, random.nextInt(256), random.nextInt(256), random.nextInt(256))));
+    // Every note played since the view was created, to be exported
+    private final Session session = new Session();
+    private static final Executor exportExecutor = Executors.newSingleThreadExecutor();
+
+    // Note of a predicted hit, it's synthesized on a worker and then scheduled on the engine. The
+    // worker's task can be dropped when the executor is overwhelmed, so it may never get there.
+    private static final class ScheduledNote {
+        final long time;
+        final int note;
+        final float gain;
+        final float pan;
+        private Voice voice;
+        private boolean canceled = false;
+
+        ScheduledNote(long time, int note, float gain, float pan) {
+            this.time = time;
+            this.note = note;
+            this.gain = gain;
+            this.pan = pan;
         }
-        setPressed(false);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            rippleDrawable.setHotspot(x.getValue(), y.getValue());
+
+        synchronized void schedule(AudioEngine audioEngine, Voice voice) {
+            if (canceled) {
+                voice.release();
+                return;
+            }
+            this.voice = voice;
+            audioEngine.schedule(voice, note, gain, pan, time);
         }
-        setPressed(true);
+
+        // Whether the note has reached the engine, to be played on time.
+        synchronized boolean isScheduled() {
+            return voice != null;
+        }
+
+        synchronized void cancel(AudioEngine audioEngine) {
+            canceled = true;
+            if (voice != null) audioEngine.cancel(voice);
+        }
+    }
+
+    private void cancelScheduledHit() {
+        if (scheduledNote != null) scheduledNote.cancel(audioEngine);
+        scheduledNote = null;
+    }
+
+    // The fling is closed form, so the next wall hit is known as soon as they start and its note
+    // can be scheduled to be heard right as the ball gets there, whatever the output latency is.
+    private void scheduleNextHit() {
+        cancelScheduledHit();
         if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.ECLAIR) return;
-        performHapticFeedback(HapticFeedbackConstants.VIRTUAL_KEY);
+        // Static tracks can't be started at a given time.
+        if (staticTrackPool != null) return;
+        final var time = fling.getTimeOfNextWallHit();
+        if (time == -1) return;
+        final var note = diatonicScale[(counter + 1) % diatonicScale.length];
+        final var hit = fling.getStateAt(time, predictedHit);
+        final var pan = getPan(hit.x);
+        final var gain = getGain((float) Math.hypot(hit.velocityX, hit.velocityY));
+        final var scheduled = new ScheduledNote(time, note, gain, pan);
+        scheduledNote = scheduled;
+        audioExecutor.execute(scheduled, () -> scheduled.schedule(audioEngine, createVoice(note)));
+    }
 
-        final var index = ++counter % diatonicScale.length;
-        new Thread(() -> {
-            final var note = diatonicScale[index];
-            final var sampleRate = 44100;
-            final var buffer =
-                    guitarString(sampleRate, getStandardFrequency(MIDDLE_A_SEMITONE + note), 4);
-            final var audioTrack = new AudioTrack(
-                    AudioManager.STREAM_MUSIC, sampleRate, AudioFormat.CHANNEL_OUT_MONO,
-                    AudioFormat.ENCODING_PCM_16BIT, buffer.length, AudioTrack.MODE_STATIC
-            );
-            audioTrack.write(buffer, 0, buffer.length);
+    // Renders the notes played so far to a WAV file in the background, much faster than realtime.
+    private void exportSession() {
+        final var snapshot = session.copy();
+        var directory = getContext().getExternalFilesDir(null);
+        if (directory == null) directory = getContext().getFilesDir();
+        final var file = new File(directory, "session-" + System.currentTimeMillis() + ".wav");
+        final var renderer = new OfflineRenderer(useWavetable ? Wavetable.DEFAULT : GuitarString.DEFAULT,
+                audioEngine.getSampleRate(), noteDuration)
+                .setMaxVoices(audioEngine.getMixer().getMaxVoices())
+                .setStealPolicy(audioEngine.getMixer().getStealPolicy());
+        exportExecutor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
             try {
-                audioTrack.play();
-            } catch (Exception e) {
-                Log.e("Bouncy", e.getMessage(), e);
+                final var frames = renderer.render(snapshot, file);
+                Log.i(TAG, "Exported " + snapshot.size() + " notes, " + frames + " frames, to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Can't export the session to " + file, e);
             }
-        }).start();
+        });
+    }
+
+    private float getReverbSend() {
+        return reverb != null ? reverb.getSend() : 0;
     }
 
-    private final double MIDDLE_A_SEMITONE = 69;
+    private float getPan(float x) {
+        return getWidth() > 0 ? x / getWidth() * 2 - 1 : 0;
+    }
 
-    private double getStandardFrequency(double note) {
-        final var MIDDLE_A_FREQUENCY = 440;
-        return MIDDLE_A_FREQUENCY * Math.pow(2.0, (note - MIDDLE_A_SEMITONE) / 12);
+    private static float getGain(float speed) {
+        return Math.min(1, minimumGain + speed / fullGainSpeed);
     }
 
-    // Based on https://habr.com/ru/post/514844/ and https://timiskhakov.github.io/posts/programming-guitar-music
-    private short[] guitarString(int sampleRate, double frequency, double duration/*1.0*/) {
-        final var p = .9;
-        final var beta = .1;
-        final var s = .1;
-        final var c = .1;
-        final var l = .1;
-        final var n = (int) (sampleRate / frequency);
-
-        // Pick-direction lowpass filter
-        final var rand = new Random();
-        final var random = new double[n];
-        var lastOut = (1 - p) * rand.nextDouble() * 2 - 1;
-        random[0] = lastOut;
-        for (var i = 1; i < n; ++i) {
-            lastOut = (1 - p) * (rand.nextDouble() * 2 - 1) + p * lastOut;
-            random[i] = lastOut;
+    private void loadStaticTracks() {
+        final var sampleRate = audioEngine.getSampleRate();
+        // The scale goes up and back down, each note is loaded once.
+        final var loaded = new HashSet<Integer>();
+        for (final var note : diatonicScale) {
+            if (!loaded.add(note)) continue;
+            staticTrackPool.load(note, noteCache.get(GuitarString.DEFAULT,
+                    GuitarString.MIDDLE_A_SEMITONE + note, sampleRate, noteDuration));
         }
+    }
 
-        // Pick-position comb filter
-        var pick = (int) (beta * n + .5);
-        if (pick == 0) pick = n;
-        var noise = new double[random.length];
-        for (var i = 0; i < noise.length; ++i) {
-            noise[i] = random[i] - (i < pick ? .0 : random[i - pick]);
+    private Voice createVoice(int note) {
+        final var semitone = GuitarString.MIDDLE_A_SEMITONE + note;
+        final var sampleRate = audioEngine.getSampleRate();
+        if (useWavetable) {
+            return Wavetable.DEFAULT.pluck(sampleRate, GuitarString.getStandardFrequency(semitone), noteDuration);
         }
+        return progressiveSynthesis
+                ? noteCache.getVoice(GuitarString.DEFAULT, semitone, sampleRate, noteDuration)
+                : new SampleVoice(noteCache.get(GuitarString.DEFAULT, semitone, sampleRate, noteDuration));
+    }
 
-        final var samples = new double[(int) (sampleRate * duration)];
-        System.arraycopy(noise, 0, samples, 0, n);
-
-        // First-order string-tuning allpass filter
-        for (var i = n; i < samples.length; ++i) {
-            // delay line
-            final var delayLine = samples[i - n];
-            final var delayLineM1 = (i - 1 - n) > 0 ? samples[i - 1 - n] : 0;
-            final var delayLineM2 = (i - 2 - n) > 0 ? samples[i - 2 - n] : 0;
-            // String-dampling filter.
-            final var stringDamplingFilter = .996 * ((1 - s) * delayLine + s * delayLineM1);
-            final var stringDamplingFilterM1 = .996 * ((1 - s) * delayLineM1 + s * delayLineM2);
+    // A wall hit found during a fling step, its next hit is predicted once the step is over.
+    private boolean pendingHitPrediction = false;
 
-            samples[i] = c * (stringDamplingFilter - samples[i - 1]) + stringDamplingFilterM1;
+    private void onFlingUpdate() {
+        invalidate();
+        if (pendingHitPrediction) {
+            pendingHitPrediction = false;
+            scheduleNextHit();
         }
+    }
 
-        // Dynamic-level lowpass filter. L ∈ (0, 1/3)
-        final var wTilde = Math.PI * frequency / sampleRate;
-        final var buffer = new double[samples.length];
-        buffer[0] = wTilde / (1 + wTilde) * samples[0];
-        for (int i = 1; i < samples.length; ++i) {
-            buffer[i] = wTilde / (1 + wTilde) * (samples[i] + samples[i - 1]) + (1 - wTilde) / (1 + wTilde) * buffer[i - 1];
+    // Hits of the balls aren't predicted, there can be thousands of them a second, so just a few
+    // are played as they happen.
+    private void onBallHit(float hitX, float hitY, float speed, long time) {
+        if (time - lastBallHitTime < minimumBallHitInterval) return;
+        lastBallHitTime = time;
+        onWallHit(hitX, hitY, speed, time, false);
+    }
+
+    /**
+     * @param hitX      horizontal position of the ball where it touched the wall
+     * @param hitY      vertical position of the ball where it touched the wall
+     * @param speed     speed the ball hit the wall with
+     * @param time      when the ball hit the wall, in the {@link System#nanoTime()} base
+     * @param predicted whether the hit is of the big ball, whose hits are predicted and scheduled
+     */
+    private void onWallHit(float hitX, float hitY, float speed, long time, boolean predicted) {
+        final var trace = audioEngine.getLatencyTracker().begin();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            rippleDrawable.setColor(ColorStateList.valueOf(Color.argb(0x10, random.nextInt(256), random.nextInt(256), random.nextInt(256))));
         }
-        for (int i = 0; i < samples.length; ++i) {
-            samples[i] = ((Math.pow(l, 4 / 3.0)) * samples[i]) + (1 - l) * buffer[i];
+        setPressed(false);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            rippleDrawable.setHotspot(hitX, hitY);
         }
+        setPressed(true);
+        if (predicted) squashSpring.setStartVelocity(-squashVelocity * Math.min(1, speed / fullGainSpeed)).start();
+        if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.ECLAIR) return;
+        performHapticFeedback(HapticFeedbackConstants.VIRTUAL_KEY);
 
-        var max = .0;
-        for (final var sample : samples) max = Math.max(max, Math.abs(sample));
-
-        final var result = new short[samples.length];
-        for (var i = 0; i < result.length; ++i) {
-            result[i] = (short) (samples[i] / max * Short.MAX_VALUE);
+        final int note;
+        if (predicted) {
+            note = diatonicScale[++counter % diatonicScale.length];
+            if (reverb != null) reverb.setSend(reverbSends[counter % reverbSends.length]);
+        } else {
+            note = diatonicScale[++ballCounter % diatonicScale.length];
         }
-        return result;
+        final var scheduled = predicted ? scheduledNote : null;
+        if (predicted) {
+            scheduledNote = null;
+            // The next hit is predicted once the fling is done with this step.
+            pendingHitPrediction = true;
+        }
+        if (scheduled != null && scheduled.isScheduled()
+                && Math.abs(time - scheduled.time) < scheduledHitTolerance) {
+            // Already on its way to be heard right now.
+            session.record(scheduled.time, GuitarString.MIDDLE_A_SEMITONE + scheduled.note, scheduled.gain, scheduled.pan,
+                    getReverbSend());
+            return;
+        }
+        // Missed, or never made it to the engine in time, so it's played now instead.
+        if (scheduled != null) scheduled.cancel(audioEngine);
+        // Placed where the ball hit and as loud as it hit, applied by the mixer to the same note.
+        final var pan = getPan(hitX);
+        final var gain = getGain(speed);
+        session.record(time, GuitarString.MIDDLE_A_SEMITONE + note, gain, pan, getReverbSend());
+        // Hits of the same note still waiting to be synthesized are played just once.
+        audioExecutor.execute(note, () -> {
+            trace.mark(LatencyTracker.Stage.DISPATCHED);
+            if (staticTrackPool != null && staticTrackPool.play(note, gain, pan, trace)) return;
+            final var voice = createVoice(note);
+            trace.mark(LatencyTracker.Stage.SYNTHESIZED);
+            audioEngine.play(voice, note, gain, pan, trace);
+        });
     }
 }
@@ -11,6 +11,12 @@ import android.view.WindowInsets;
 import android.view.WindowInsetsController;
 import android.view.WindowManager;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+import io.github.ebraminio.bouncy.animation.FramePacingTracker;
+import io.github.ebraminio.bouncy.audio.AudioEngine;
+
 public class MainActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -18,6 +24,14 @@ public class MainActivity extends Activity {
         setContentView(new Bouncy(this));
     }
 
+    // Reached with adb shell dumpsys activity io.github.ebraminio.bouncy/.MainActivity
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        AudioEngine.getInstance(this).getLatencyTracker().dump(prefix, writer);
+        FramePacingTracker.getInstance().dump(prefix, writer);
+    }
+
     @Override
     public void onWindowFocusChanged(boolean hasFocus) {
         super.onWindowFocusChanged(hasFocus);
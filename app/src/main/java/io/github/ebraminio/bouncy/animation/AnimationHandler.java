@@ -16,7 +16,6 @@ package io.github.ebraminio.bouncy.animation;
  */
 
 import android.os.Build;
-import android.os.SystemClock;
 import android.view.Choreographer;
 
 import java.util.ArrayList;
@@ -40,7 +39,8 @@ class AnimationHandler {
         /**
          * Run animation based on the frame time.
          *
-         * @param frameTime The frame start time
+         * @param frameTime The frame start time, the vsync time reported by the Choreographer in
+         *                  nanoseconds in the {@link System#nanoTime()} base
          */
         boolean doAnimationFrame(long frameTime);
     }
@@ -52,11 +52,16 @@ class AnimationHandler {
      * the new frame, so that they can update animation values as needed.
      */
     class AnimationCallbackDispatcher {
-        void dispatchAnimationFrame() {
-            mCurrentFrameTime = SystemClock.uptimeMillis();
-            doAnimationFrame(mCurrentFrameTime);
+        void dispatchAnimationFrame(long frameTimeNanos) {
+            final var currentTime = System.nanoTime();
+            mCurrentFrameTime = frameTimeNanos;
+            mFramePacingTracker.record(frameTimeNanos, currentTime);
+            doAnimationFrame(mCurrentFrameTime, currentTime);
             if (mAnimationCallbacks.size() > 0) {
                 getProvider().postFrameCallback();
+            } else {
+                // Not a late frame, there's just nothing to animate until the next one.
+                mFramePacingTracker.stop();
             }
         }
     }
@@ -73,6 +78,8 @@ class AnimationHandler {
     final ArrayList<AnimationFrameCallback> mAnimationCallbacks = new ArrayList<>();
     private final AnimationCallbackDispatcher mCallbackDispatcher =
             new AnimationCallbackDispatcher();
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final FramePacingTracker mFramePacingTracker = new FramePacingTracker();
 
     private AnimationFrameCallbackProvider mProvider;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -86,6 +93,10 @@ class AnimationHandler {
         return sAnimatorHandler.get();
     }
 
+    /**
+     * Returns the time of the frame being animated in nanoseconds in the
+     * {@link System#nanoTime()} base, or 0 before the first one.
+     */
     public static long getFrameTime() {
         if (sAnimatorHandler.get() == null) {
             return 0;
@@ -101,6 +112,10 @@ class AnimationHandler {
         mProvider = provider;
     }
 
+    public FramePacingTracker getFramePacingTracker() {
+        return mFramePacingTracker;
+    }
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     AnimationFrameCallbackProvider getProvider() {
         if (mProvider == null) {
@@ -110,7 +125,7 @@ class AnimationHandler {
     }
 
     /**
-     * Register to get a callback on the next frame after the delay.
+     * Register to get a callback on the next frame after the delay, in milliseconds.
      */
     public void addAnimationFrameCallback(final AnimationFrameCallback callback, long delay) {
         if (mAnimationCallbacks.size() == 0) {
@@ -121,7 +136,7 @@ class AnimationHandler {
         }
 
         if (delay > 0) {
-            mDelayedCallbackStartTime.put(callback, (SystemClock.uptimeMillis() + delay));
+            mDelayedCallbackStartTime.put(callback, (System.nanoTime() + delay * 1_000_000));
         }
     }
 
@@ -139,8 +154,7 @@ class AnimationHandler {
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
-    void doAnimationFrame(long frameTime) {
-        long currentTime = SystemClock.uptimeMillis();
+    void doAnimationFrame(long frameTime, long currentTime) {
         for (int i = 0; i < mAnimationCallbacks.size(); i++) {
             final AnimationFrameCallback callback = mAnimationCallbacks.get(i);
             if (callback == null) {
@@ -197,7 +211,7 @@ class AnimationHandler {
         private final Choreographer.FrameCallback mChoreographerCallback;
 
         AnimationFrameCallbackProvider(AnimationCallbackDispatcher dispatcher) {
-            mChoreographerCallback = frameTimeNanos -> dispatcher.dispatchAnimationFrame();
+            mChoreographerCallback = dispatcher::dispatchAnimationFrame;
         }
 
         void postFrameCallback() {
@@ -0,0 +1,485 @@
+package io.github.ebraminio.bouncy.animation;
+
+import android.os.Looper;
+import android.util.AndroidRuntimeException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>Flings of many balls of the same size at once, bouncing off the walls and off each other.
+ * Like {@link Fling2DAnimation}, but the state of the balls is kept in parallel arrays rather than
+ * an animation per ball, and all of them are stepped by a single frame callback with a single
+ * {@code exp(friction * deltaT)} per step.
+ *
+ * <p>Balls that may touch are found through a uniform grid of cells as large as a ball, rebuilt
+ * each step with a counting sort, so a step costs about the same per ball however many there
+ * are. Colliding balls exchange the velocity along the line between their centers, as equal
+ * masses do in an elastic collision.
+ *
+ * <p>Up to a fixed number of balls are kept, adding one more replaces the oldest. The system runs
+ * while any ball moves, and starts again when a ball is added.
+ */
+public final class BallSystem implements AnimationHandler.AnimationFrameCallback {
+    /**
+     * Passed as the other ball of a hit that is with a wall.
+     */
+    public static final int NO_BALL = -1;
+
+    // Multiplier to the min visible change value for value threshold
+    private static final float THRESHOLD_MULTIPLIER = 0.75f;
+
+    private final FlingAnimation.DragForce mFlingForce = new FlingAnimation.DragForce();
+
+    // State of the balls, the first mCount entries are in use.
+    private final float[] mX;
+    private final float[] mY;
+    private final float[] mVelocityX;
+    private final float[] mVelocityY;
+    // Positions before the last fixed step, to interpolate from.
+    private final float[] mPreviousX;
+    private final float[] mPreviousY;
+    private int mCount = 0;
+    // The ball replaced by the next one added when all are in use.
+    private int mOldest = 0;
+
+    // Broadphase grid, the balls of cell c are mCellBalls[mCellStarts[c]..mCellStarts[c + 1]).
+    private final int[] mBallCells;
+    private final int[] mCellBalls;
+    private int[] mCellStarts = new int[2];
+    private int mColumns = 1;
+    private int mRows = 1;
+
+    private float mRadius;
+    private float mLeft = 0;
+    private float mTop = 0;
+    private float mRight = 0;
+    private float mBottom = 0;
+    // A ball that crosses a wall within a step is moved through this one.
+    private final BouncingPoint mBouncingPoint = new BouncingPoint();
+    private final BouncingPoint.OnBounceListener mBounceListener = this::notifyWallHit;
+    private int mBouncingBall = NO_BALL;
+
+    private boolean mRunning = false;
+    private final FrameStepper mFrameStepper = new FrameStepper(this::step);
+    private float mAlpha = 1;
+
+    private final ArrayList<OnAnimationUpdateListener> mUpdateListeners = new ArrayList<>();
+    private final ArrayList<OnHitListener> mHitListeners = new ArrayList<>();
+
+    /**
+     * @param capacity the most balls kept at once
+     * @param radius   radius of every ball
+     */
+    public BallSystem(int capacity, float radius) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mVelocityX = new float[capacity];
+        mVelocityY = new float[capacity];
+        mPreviousX = new float[capacity];
+        mPreviousY = new float[capacity];
+        mBallCells = new int[capacity];
+        mCellBalls = new int[capacity];
+        mFlingForce.setValueThreshold(DynamicAnimation.MIN_VISIBLE_CHANGE_PIXELS * THRESHOLD_MULTIPLIER);
+        mBouncingPoint.setWalls(mLeft, mTop, mRight, mBottom);
+        setRadius(radius);
+    }
+
+    /**
+     * See {@link FlingAnimation#setFriction(float)}.
+     */
+    public BallSystem setFriction(float friction) {
+        if (friction <= 0) {
+            throw new IllegalArgumentException("Friction must be positive");
+        }
+        mFlingForce.setFrictionScalar(friction);
+        return this;
+    }
+
+    public float getFriction() {
+        return mFlingForce.getFrictionScalar();
+    }
+
+    /**
+     * See {@link DynamicAnimation#setFixedTimeStep(long)}.
+     */
+    public BallSystem setFixedTimeStep(long timeStep) {
+        mFrameStepper.setFixedTimeStep(timeStep);
+        return this;
+    }
+
+    public long getFixedTimeStep() {
+        return mFrameStepper.getFixedTimeStep();
+    }
+
+    public BallSystem setRadius(float radius) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Radius must be positive");
+        }
+        mRadius = radius;
+        updateGrid();
+        return this;
+    }
+
+    public float getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * Sets the walls the centers of the balls bounce off of, see
+     * {@link Fling2DAnimation#setWalls(float, float, float, float)}. Balls outside of them are
+     * moved in.
+     *
+     * @return the system whose walls are being set
+     */
+    public BallSystem setWalls(float left, float top, float right, float bottom) {
+        if (left > right || top > bottom) {
+            throw new IllegalArgumentException("Walls can't be inside out");
+        }
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+        mBouncingPoint.setWalls(left, top, right, bottom);
+        for (var i = 0; i < mCount; ++i) {
+            mX[i] = mPreviousX[i] = Math.max(left, Math.min(right, mX[i]));
+            mY[i] = mPreviousY[i] = Math.max(top, Math.min(bottom, mY[i]));
+        }
+        updateGrid();
+        return this;
+    }
+
+    private void updateGrid() {
+        // At least as large as a ball, so balls that touch are at most a cell apart.
+        final var cell = 2 * mRadius;
+        mColumns = Math.max(1, (int) ((mRight - mLeft) / cell));
+        mRows = Math.max(1, (int) ((mBottom - mTop) / cell));
+        final var cells = (long) mColumns * mRows;
+        if (cells >= mX.length * 4L) {
+            // Balls that small spread over so many cells that most are empty, so larger cells
+            // are checked instead, still a few balls each on average.
+            final var scale = Math.sqrt((double) cells / (mX.length * 4L));
+            mColumns = Math.max(1, (int) (mColumns / scale));
+            mRows = Math.max(1, (int) (mRows / scale));
+        }
+        if (mCellStarts.length < mColumns * mRows + 1) mCellStarts = new int[mColumns * mRows + 1];
+    }
+
+    /**
+     * Adds a ball and starts the system if it isn't running, replacing the oldest ball if all
+     * are in use. This method should only be called on main thread.
+     *
+     * @return index of the ball
+     */
+    public int addBall(float x, float y, float velocityX, float velocityY) {
+        final int ball;
+        if (mCount < mX.length) {
+            ball = mCount++;
+        } else {
+            ball = mOldest;
+            mOldest = (mOldest + 1) % mX.length;
+        }
+        mX[ball] = mPreviousX[ball] = Math.max(mLeft, Math.min(mRight, x));
+        mY[ball] = mPreviousY[ball] = Math.max(mTop, Math.min(mBottom, y));
+        mVelocityX[ball] = velocityX;
+        mVelocityY[ball] = velocityY;
+        start();
+        return ball;
+    }
+
+    /**
+     * Removes all the balls and stops the system. This method should only be called on main
+     * thread.
+     */
+    public void clear() {
+        cancel();
+        mCount = 0;
+        mOldest = 0;
+    }
+
+    public int getBallCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the horizontal position of a ball to be shown, see
+     * {@link DynamicAnimation#setFixedTimeStep(long)}.
+     */
+    public float getX(int ball) {
+        return mPreviousX[ball] + (mX[ball] - mPreviousX[ball]) * mAlpha;
+    }
+
+    /**
+     * Same as {@link #getX(int)} for the vertical position.
+     */
+    public float getY(int ball) {
+        return mPreviousY[ball] + (mY[ball] - mPreviousY[ball]) * mAlpha;
+    }
+
+    public float getVelocityX(int ball) {
+        return mVelocityX[ball];
+    }
+
+    public float getVelocityY(int ball) {
+        return mVelocityY[ball];
+    }
+
+    /**
+     * Adds a listener notified once per frame, after all the balls have moved.
+     */
+    public BallSystem addUpdateListener(OnAnimationUpdateListener listener) {
+        if (!mUpdateListeners.contains(listener)) {
+            mUpdateListeners.add(listener);
+        }
+        return this;
+    }
+
+    public void removeUpdateListener(OnAnimationUpdateListener listener) {
+        mUpdateListeners.remove(listener);
+    }
+
+    /**
+     * Adds a listener notified whenever a ball hits a wall or another ball.
+     */
+    public BallSystem addHitListener(OnHitListener listener) {
+        if (!mHitListeners.contains(listener)) {
+            mHitListeners.add(listener);
+        }
+        return this;
+    }
+
+    public void removeHitListener(OnHitListener listener) {
+        mHitListeners.remove(listener);
+    }
+
+    /**
+     * See {@link DynamicAnimation#start()}.
+     *
+     * @throws AndroidRuntimeException if this method is not called on the main thread
+     */
+    public void start() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new AndroidRuntimeException("Animations may only be started on the main thread");
+        }
+        if (mRunning) return;
+        mRunning = true;
+        AnimationHandler.getInstance().addAnimationFrameCallback(this, 0);
+    }
+
+    /**
+     * Stops the balls where they are shown. See {@link DynamicAnimation#cancel()}.
+     *
+     * @throws AndroidRuntimeException if this method is not called on the main thread
+     */
+    public void cancel() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new AndroidRuntimeException("Animations may only be canceled on the main thread");
+        }
+        if (!mRunning) return;
+        for (var i = 0; i < mCount; ++i) {
+            mX[i] = mPreviousX[i] = getX(i);
+            mY[i] = mPreviousY[i] = getY(i);
+            mVelocityX[i] = 0;
+            mVelocityY[i] = 0;
+        }
+        endAnimationInternal();
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /************************** Private APIs below ********************************/
+
+    @Override
+    public boolean doAnimationFrame(long frameTime) {
+        if (mFrameStepper.isFirstFrame()) {
+            // First frame.
+            mFrameStepper.doFrame(frameTime);
+            mAlpha = 1;
+            notifyUpdate();
+            return false;
+        }
+        final boolean finished = mFrameStepper.doFrame(frameTime);
+        mAlpha = finished ? 1 : mFrameStepper.getAlpha();
+        notifyUpdate();
+        if (finished) endAnimationInternal();
+        return finished;
+    }
+
+    // Advances all the balls and returns whether they've all come to rest.
+    private boolean step(long deltaT) {
+        System.arraycopy(mX, 0, mPreviousX, 0, mCount);
+        System.arraycopy(mY, 0, mPreviousY, 0, mCount);
+        final var seconds = deltaT / 1e9;
+        final var friction = mFlingForce.getFriction();
+        final var decay = Math.exp(friction * seconds);
+        // How far a ball moves per unit of its velocity at the start of the step
+        final var travel = (decay - 1) / friction;
+        for (var i = 0; i < mCount; ++i) {
+            final var velocityX = mVelocityX[i];
+            final var velocityY = mVelocityY[i];
+            if (velocityX == 0 && velocityY == 0) continue;
+            final var x = (float) (mX[i] + velocityX * travel);
+            final var y = (float) (mY[i] + velocityY * travel);
+            if (x < mLeft || x > mRight || y < mTop || y > mBottom) {
+                bounce(i, seconds);
+                continue;
+            }
+            mX[i] = x;
+            mY[i] = y;
+            mVelocityX[i] = (float) (velocityX * decay);
+            mVelocityY[i] = (float) (velocityY * decay);
+        }
+
+        collide(mFrameStepper.getStepStartTime() + deltaT);
+
+        final var threshold = mFlingForce.getVelocityThreshold();
+        var moving = false;
+        for (var i = 0; i < mCount; ++i) {
+            final var velocityX = mVelocityX[i];
+            final var velocityY = mVelocityY[i];
+            if (velocityX * velocityX + velocityY * velocityY < threshold * threshold) {
+                mVelocityX[i] = 0;
+                mVelocityY[i] = 0;
+            } else {
+                moving = true;
+            }
+        }
+        return !moving;
+    }
+
+    // Moves a single ball that crosses a wall within the step, see BouncingPoint.
+    private void bounce(int ball, double seconds) {
+        final var point = mBouncingPoint;
+        point.mX = mX[ball];
+        point.mY = mY[ball];
+        point.mVelocityX = mVelocityX[ball];
+        point.mVelocityY = mVelocityY[ball];
+        mBouncingBall = ball;
+        point.step(seconds, mFlingForce, mBounceListener);
+        mX[ball] = point.mX;
+        mY[ball] = point.mY;
+        mVelocityX[ball] = point.mVelocityX;
+        mVelocityY[ball] = point.mVelocityY;
+    }
+
+    private void notifyWallHit(float x, float y, float velocityX, float velocityY, double elapsed) {
+        notifyHit(mBouncingBall, NO_BALL, x, y, (float) Math.hypot(velocityX, velocityY),
+                mFrameStepper.getStepStartTime() + (long) (elapsed * 1_000_000_000));
+    }
+
+    // Resolves the balls overlapping at the end of the step, only checking those in the same or
+    // neighbouring cells.
+    private void collide(long time) {
+        final var cells = mColumns * mRows;
+        final var cellWidth = Math.max(mRight - mLeft, Float.MIN_NORMAL) / mColumns;
+        final var cellHeight = Math.max(mBottom - mTop, Float.MIN_NORMAL) / mRows;
+        Arrays.fill(mCellStarts, 0, cells + 1, 0);
+        for (var i = 0; i < mCount; ++i) {
+            final var column = Math.min(mColumns - 1, Math.max(0, (int) ((mX[i] - mLeft) / cellWidth)));
+            final var row = Math.min(mRows - 1, Math.max(0, (int) ((mY[i] - mTop) / cellHeight)));
+            mBallCells[i] = row * mColumns + column;
+            ++mCellStarts[mBallCells[i]];
+        }
+        var start = 0;
+        for (var c = 0; c <= cells; ++c) {
+            final var count = mCellStarts[c];
+            mCellStarts[c] = start;
+            start += count;
+        }
+        // Moves each cell's start to its end, i.e. to the start of the next cell.
+        for (var i = 0; i < mCount; ++i) mCellBalls[mCellStarts[mBallCells[i]]++] = i;
+        System.arraycopy(mCellStarts, 0, mCellStarts, 1, cells);
+        mCellStarts[0] = 0;
+
+        final var diameter = 2 * mRadius;
+        for (var i = 0; i < mCount; ++i) {
+            final var column = mBallCells[i] % mColumns;
+            final var row = mBallCells[i] / mColumns;
+            for (var r = Math.max(0, row - 1); r <= Math.min(mRows - 1, row + 1); ++r) {
+                for (var c = Math.max(0, column - 1); c <= Math.min(mColumns - 1, column + 1); ++c) {
+                    final var cell = r * mColumns + c;
+                    for (var k = mCellStarts[cell]; k < mCellStarts[cell + 1]; ++k) {
+                        final var j = mCellBalls[k];
+                        // Each pair once
+                        if (j <= i) continue;
+                        final var dx = mX[j] - mX[i];
+                        final var dy = mY[j] - mY[i];
+                        final var distanceSquared = dx * dx + dy * dy;
+                        if (distanceSquared >= diameter * diameter || distanceSquared == 0) continue;
+                        resolve(i, j, dx, dy, (float) Math.sqrt(distanceSquared), diameter, time);
+                    }
+                }
+            }
+        }
+    }
+
+    private void resolve(int i, int j, float dx, float dy, float distance, float diameter,
+                         long time) {
+        final var normalX = dx / distance;
+        final var normalY = dy / distance;
+        // Pushed apart evenly, then kept within the walls.
+        final var push = (diameter - distance) / 2;
+        mX[i] = Math.max(mLeft, Math.min(mRight, mX[i] - normalX * push));
+        mY[i] = Math.max(mTop, Math.min(mBottom, mY[i] - normalY * push));
+        mX[j] = Math.max(mLeft, Math.min(mRight, mX[j] + normalX * push));
+        mY[j] = Math.max(mTop, Math.min(mBottom, mY[j] + normalY * push));
+        final var approach = (mVelocityX[i] - mVelocityX[j]) * normalX
+                + (mVelocityY[i] - mVelocityY[j]) * normalY;
+        // Already moving apart
+        if (approach <= 0) return;
+        mVelocityX[i] -= approach * normalX;
+        mVelocityY[i] -= approach * normalY;
+        mVelocityX[j] += approach * normalX;
+        mVelocityY[j] += approach * normalY;
+        if (approach < mFlingForce.getVelocityThreshold()) return;
+        notifyHit(i, j, mX[i] + normalX * mRadius, mY[i] + normalY * mRadius, approach, time);
+    }
+
+    private void notifyHit(int ball, int other, float x, float y, float speed, long time) {
+        for (var i = 0; i < mHitListeners.size(); ++i) {
+            mHitListeners.get(i).onHit(this, ball, other, x, y, speed, time);
+        }
+    }
+
+    private void notifyUpdate() {
+        for (var i = 0; i < mUpdateListeners.size(); ++i) {
+            mUpdateListeners.get(i).onAnimationUpdate(this);
+        }
+    }
+
+    private void endAnimationInternal() {
+        mRunning = false;
+        AnimationHandler.getInstance().removeCallback(this);
+        mFrameStepper.reset();
+        mAlpha = 1;
+    }
+
+    /**
+     * Receives a notification on every frame the balls move, after all of them have moved.
+     */
+    public interface OnAnimationUpdateListener {
+        void onAnimationUpdate(BallSystem system);
+    }
+
+    /**
+     * Receives a notification each time a ball hits a wall or another ball.
+     */
+    public interface OnHitListener {
+        /**
+         * @param system the system of the balls
+         * @param ball   index of the ball that hit
+         * @param other  index of the ball it hit, or {@link #NO_BALL} for a wall
+         * @param x      horizontal position of the hit
+         * @param y      vertical position of the hit
+         * @param speed  the speed of the hit, relative to the other ball if any
+         * @param time   when the hit happened, in the {@link System#nanoTime()} base
+         */
+        void onHit(BallSystem system, int ball, int other, float x, float y, float speed,
+                   long time);
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.ebraminio.bouncy.animation;
+
+/**
+ * A point flung within walls, advanced a step at a time along the closed form of the fling. The
+ * exact time a step reaches a wall is solved for, where the velocity is reflected and the rest of
+ * the step continues from, so no time or energy is lost to when the steps happen. A step without
+ * a wall hit costs a single exp for both axes.
+ */
+final class BouncingPoint {
+
+    // Guards against a point stuck between walls that are (almost) at the same place.
+    private static final int MAX_WALL_HITS_PER_STEP = 16;
+
+    /**
+     * Receives a notification each time the point bounces off one of the walls during a step.
+     */
+    interface OnBounceListener {
+        /**
+         * @param x         horizontal position where the wall was hit
+         * @param y         vertical position where the wall was hit
+         * @param velocityX horizontal velocity the wall was hit with, before it was reflected
+         * @param velocityY vertical velocity the wall was hit with, before it was reflected
+         * @param elapsed   time into the step the wall was hit at, in seconds
+         */
+        void onBounce(float x, float y, float velocityX, float velocityY, double elapsed);
+    }
+
+    float mX = 0;
+    float mY = 0;
+    float mVelocityX = 0;
+    float mVelocityY = 0;
+
+    float mLeft = -Float.MAX_VALUE;
+    float mTop = -Float.MAX_VALUE;
+    float mRight = Float.MAX_VALUE;
+    float mBottom = Float.MAX_VALUE;
+
+    void setWalls(float left, float top, float right, float bottom) {
+        if (left > right || top > bottom) {
+            throw new IllegalArgumentException("Walls can't be inside out");
+        }
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+    }
+
+    /**
+     * Advances the point by the given time, bouncing off the walls crossed on the way.
+     *
+     * @param seconds  length of the step
+     * @param force    the drag slowing the point down
+     * @param listener notified of each bounce, in order
+     */
+    void step(double seconds, FlingAnimation.DragForce force, OnBounceListener listener) {
+        final var friction = force.getFriction();
+        var remaining = seconds;
+        var elapsed = 0.0;
+        for (var i = 0; ; ++i) {
+            final var decay = Math.exp(friction * remaining);
+            final var x = (float) (mX + mVelocityX / friction * (decay - 1));
+            final var y = (float) (mY + mVelocityY / friction * (decay - 1));
+            final var crossedX = x < mLeft || x > mRight;
+            final var crossedY = y < mTop || y > mBottom;
+            if (!(crossedX || crossedY) || i == MAX_WALL_HITS_PER_STEP) {
+                mX = Math.max(mLeft, Math.min(mRight, x));
+                mY = Math.max(mTop, Math.min(mBottom, y));
+                mVelocityX = (float) (mVelocityX * decay);
+                mVelocityY = (float) (mVelocityY * decay);
+                return;
+            }
+            final var wallX = x < mLeft ? mLeft : mRight;
+            final var wallY = y < mTop ? mTop : mBottom;
+            final var timeX = crossedX ? force.getTimeToReach(mX, mVelocityX, wallX) : remaining;
+            final var timeY = crossedY ? force.getTimeToReach(mY, mVelocityY, wallY) : remaining;
+            final var hit = Math.min(remaining, Math.min(timeX, timeY));
+            final var hitDecay = Math.exp(friction * hit);
+            final var velocityX = (float) (mVelocityX * hitDecay);
+            final var velocityY = (float) (mVelocityY * hitDecay);
+            mX = (float) (mX + mVelocityX / friction * (hitDecay - 1));
+            mY = (float) (mY + mVelocityY / friction * (hitDecay - 1));
+            mVelocityX = velocityX;
+            mVelocityY = velocityY;
+            // Both at once in a corner
+            var reflected = false;
+            if (crossedX && timeX <= hit) {
+                mX = wallX;
+                mVelocityX = -velocityX;
+                reflected = true;
+            }
+            if (crossedY && timeY <= hit) {
+                mY = wallY;
+                mVelocityY = -velocityY;
+                reflected = true;
+            }
+            if (!reflected) {
+                // Rounding put the end of the step past a wall that the closed form doesn't
+                // reach within it, so the step is over without a bounce.
+                mX = Math.max(mLeft, Math.min(mRight, mX));
+                mY = Math.max(mTop, Math.min(mBottom, mY));
+                return;
+            }
+            remaining -= hit;
+            elapsed += hit;
+            listener.onBounce(mX, mY, velocityX, velocityY, elapsed);
+        }
+    }
+}
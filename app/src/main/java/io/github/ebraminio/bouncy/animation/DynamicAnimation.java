@@ -77,8 +77,10 @@ public abstract class DynamicAnimation<T extends DynamicAnimation<T>>
     float mMaxValue = Float.MAX_VALUE;
     float mMinValue = -mMaxValue;
 
-    // Last frame time. Always gets reset to -1  at the end of the animation.
-    private long mLastFrameTime = 0;
+    // Steps the physics through the frames. Always gets reset at the end of the animation.
+    private final FrameStepper mFrameStepper = new FrameStepper(this::doStep);
+    // Value before the last fixed step, to interpolate from.
+    private float mPreviousValue = 0;
 
     private float mMinVisibleChange;
 
@@ -238,6 +240,27 @@ public abstract class DynamicAnimation<T extends DynamicAnimation<T>>
         return (T) this;
     }
 
+    /**
+     * Makes the animation advance its physics in fixed steps of the given length instead of once
+     * per frame, as many as fit in each frame, and show the value interpolated between the last
+     * two steps. Motion then doesn't depend on the frame rate or on frames being dropped, at the
+     * cost of lagging by up to one step.
+     *
+     * @param timeStep length of a step in nanoseconds, or 0 to step once per frame
+     * @return the animation whose time step is being set
+     */
+    public T setFixedTimeStep(long timeStep) {
+        mFrameStepper.setFixedTimeStep(timeStep);
+        return (T) this;
+    }
+
+    /**
+     * Returns the physics step set via {@link #setFixedTimeStep(long)}, 0 if not set.
+     */
+    public long getFixedTimeStep() {
+        return mFrameStepper.getFixedTimeStep();
+    }
+
     /**
      * Returns the minimum change in the animation property that could be visibly different to
      * users.
@@ -342,20 +365,20 @@ public abstract class DynamicAnimation<T extends DynamicAnimation<T>>
      */
     @Override
     public boolean doAnimationFrame(long frameTime) {
-        if (mLastFrameTime == 0) {
+        if (mFrameStepper.isFirstFrame()) {
             // First frame.
-            mLastFrameTime = frameTime;
+            mFrameStepper.doFrame(frameTime);
+            mPreviousValue = mValue;
             setPropertyValue(mValue);
             return false;
         }
-        long deltaT = frameTime - mLastFrameTime;
-        mLastFrameTime = frameTime;
-        boolean finished = updateValueAndVelocity(deltaT);
-        // Clamp value & velocity.
-        mValue = Math.min(mValue, mMaxValue);
-        mValue = Math.max(mValue, mMinValue);
-
-        setPropertyValue(mValue);
+        boolean finished = mFrameStepper.doFrame(frameTime);
+        if (finished || mFrameStepper.getFixedTimeStep() == 0) {
+            setPropertyValue(mValue);
+        } else {
+            final float alpha = mFrameStepper.getAlpha();
+            setPropertyValue(mPreviousValue + (mValue - mPreviousValue) * alpha);
+        }
 
         if (finished) {
             endAnimationInternal(false);
@@ -363,12 +386,21 @@ public abstract class DynamicAnimation<T extends DynamicAnimation<T>>
         return finished;
     }
 
+    private boolean doStep(long deltaT) {
+        mPreviousValue = mValue;
+        boolean finished = updateValueAndVelocity(deltaT);
+        // Clamp value & velocity.
+        mValue = Math.min(mValue, mMaxValue);
+        mValue = Math.max(mValue, mMinValue);
+        return finished;
+    }
+
     /**
      * Updates the animation state (i.e. value and velocity). This method is package private, so
      * subclasses can override this method to calculate the new value and velocity in their custom
      * way.
      *
-     * @param deltaT time elapsed in millisecond since last frame
+     * @param deltaT time elapsed in nanoseconds since last frame
      * @return whether the animation has finished
      */
     abstract boolean updateValueAndVelocity(long deltaT);
@@ -379,7 +411,7 @@ public abstract class DynamicAnimation<T extends DynamicAnimation<T>>
     private void endAnimationInternal(boolean canceled) {
         mRunning = false;
         AnimationHandler.getInstance().removeCallback(this);
-        mLastFrameTime = 0;
+        mFrameStepper.reset();
         mStartValueIsSet = false;
         for (int i = 0; i < mEndListeners.size(); i++) {
             if (mEndListeners.get(i) != null) {
@@ -0,0 +1,353 @@
+package io.github.ebraminio.bouncy.animation;
+
+import android.os.Looper;
+import android.util.AndroidRuntimeException;
+
+import java.util.ArrayList;
+
+/**
+ * <p>Fling of a point in two dimensions, like a pair of {@link FlingAnimation}s on the x and y of
+ * the same point but stepped as one. Both axes slow down by the same drag, so the decay
+ * {@code exp(friction * deltaT)} is computed once per step for both, and a single frame callback
+ * and a single update per frame serve the two values.
+ *
+ * <p>The fling comes to a stop when its speed, rather than the velocity of either axis, is below
+ * the threshold derived from {@link #setMinimumVisibleChange(float)}. It can be kept within walls
+ * it bounces off of, see {@link #setWalls(float, float, float, float)}.
+ *
+ * <pre class="prettyprint">
+ * Fling2DAnimation flingAnim = new Fling2DAnimation(x, y)
+ *         .setWalls(0, 0, width, height)
+ *         .setStartVelocity(-2000, 1000);
+ * flingAnim.start();
+ * </pre>
+ */
+public final class Fling2DAnimation implements AnimationHandler.AnimationFrameCallback {
+
+    // Multiplier to the min visible change value for value threshold
+    private static final float THRESHOLD_MULTIPLIER = 0.75f;
+
+    private final FloatValueHolder mX;
+    private final FloatValueHolder mY;
+    private final FlingAnimation.DragForce mFlingForce = new FlingAnimation.DragForce();
+    // Closed form of the animation from its current state, for predictions
+    private final Trajectory mTrajectory = new Trajectory();
+
+    // Value, velocity and walls of both axes
+    private final BouncingPoint mPoint = new BouncingPoint();
+    private final BouncingPoint.OnBounceListener mBounceListener = this::notifyWallHit;
+
+    private boolean mRunning = false;
+    private float mMinVisibleChange = DynamicAnimation.MIN_VISIBLE_CHANGE_PIXELS;
+
+    private final FrameStepper mFrameStepper = new FrameStepper(this::step);
+    // Values before the last fixed step, to interpolate from.
+    private float mPreviousX = 0;
+    private float mPreviousY = 0;
+
+    private final ArrayList<OnAnimationUpdateListener> mUpdateListeners = new ArrayList<>();
+    private final ArrayList<OnWallHitListener> mWallHitListeners = new ArrayList<>();
+
+    /**
+     * Creates a fling of the point held by the two {@link FloatValueHolder}s, which are updated
+     * each frame. The fling starts from the values they hold when it is started.
+     *
+     * @param x the horizontal position to be animated
+     * @param y the vertical position to be animated
+     */
+    public Fling2DAnimation(FloatValueHolder x, FloatValueHolder y) {
+        mX = x;
+        mY = y;
+        mFlingForce.setValueThreshold(mMinVisibleChange * THRESHOLD_MULTIPLIER);
+    }
+
+    /**
+     * Sets the friction for the fling animation, see {@link FlingAnimation#setFriction(float)}.
+     *
+     * @param friction the friction used in the animation
+     * @return the animation whose friction will be scaled
+     * @throws IllegalArgumentException if the input friction is not positive
+     */
+    public Fling2DAnimation setFriction(float friction) {
+        if (friction <= 0) {
+            throw new IllegalArgumentException("Friction must be positive");
+        }
+        mFlingForce.setFrictionScalar(friction);
+        mTrajectory.setFriction(friction);
+        return this;
+    }
+
+    /**
+     * Returns the friction being set on the animation via {@link #setFriction(float)}, 1 if not
+     * set.
+     */
+    public float getFriction() {
+        return mFlingForce.getFrictionScalar();
+    }
+
+    /**
+     * See {@link DynamicAnimation#setMinimumVisibleChange(float)}.
+     */
+    public Fling2DAnimation setMinimumVisibleChange(float minimumVisibleChange) {
+        if (minimumVisibleChange <= 0) {
+            throw new IllegalArgumentException("Minimum visible change must be positive.");
+        }
+        mMinVisibleChange = minimumVisibleChange;
+        mFlingForce.setValueThreshold(minimumVisibleChange * THRESHOLD_MULTIPLIER);
+        mTrajectory.setMinimumVisibleChange(minimumVisibleChange);
+        return this;
+    }
+
+    public float getMinimumVisibleChange() {
+        return mMinVisibleChange;
+    }
+
+    /**
+     * See {@link DynamicAnimation#setFixedTimeStep(long)}.
+     */
+    public Fling2DAnimation setFixedTimeStep(long timeStep) {
+        mFrameStepper.setFixedTimeStep(timeStep);
+        return this;
+    }
+
+    public long getFixedTimeStep() {
+        return mFrameStepper.getFixedTimeStep();
+    }
+
+    /**
+     * Sets the walls the point bounces off of. The exact moment the point reaches a wall is found
+     * from the closed form of the fling, where the velocity is reflected and the rest of the frame
+     * continues from, so no time or energy is lost to when frames happen.
+     *
+     * @return the animation whose walls are being set
+     */
+    public Fling2DAnimation setWalls(float left, float top, float right, float bottom) {
+        mPoint.setWalls(left, top, right, bottom);
+        return this;
+    }
+
+    /**
+     * Start velocity of the animation in pixel/second. Setting it on a running animation changes
+     * the velocity it continues with.
+     *
+     * @return the animation whose start velocity is being set
+     */
+    public Fling2DAnimation setStartVelocity(float velocityX, float velocityY) {
+        mPoint.mVelocityX = velocityX;
+        mPoint.mVelocityY = velocityY;
+        return this;
+    }
+
+    /**
+     * Returns the horizontal velocity of the running animation, 0 if it isn't running.
+     */
+    public float getVelocityX() {
+        return mRunning ? mPoint.mVelocityX : 0;
+    }
+
+    /**
+     * Returns the vertical velocity of the running animation, 0 if it isn't running.
+     */
+    public float getVelocityY() {
+        return mRunning ? mPoint.mVelocityY : 0;
+    }
+
+    /**
+     * Adds an update listener, notified once per frame with both values.
+     *
+     * @param listener the listener to be added
+     * @return the animation to which the listener is added
+     */
+    public Fling2DAnimation addUpdateListener(OnAnimationUpdateListener listener) {
+        if (!mUpdateListeners.contains(listener)) {
+            mUpdateListeners.add(listener);
+        }
+        return this;
+    }
+
+    public void removeUpdateListener(OnAnimationUpdateListener listener) {
+        mUpdateListeners.remove(listener);
+    }
+
+    /**
+     * Adds a listener notified whenever the point bounces off one of the walls.
+     *
+     * @param listener the listener to be added
+     * @return the animation to which the listener is added
+     */
+    public Fling2DAnimation addWallHitListener(OnWallHitListener listener) {
+        if (!mWallHitListeners.contains(listener)) {
+            mWallHitListeners.add(listener);
+        }
+        return this;
+    }
+
+    public void removeWallHitListener(OnWallHitListener listener) {
+        mWallHitListeners.remove(listener);
+    }
+
+    /**
+     * Starts the animation from the current values of the holders, see
+     * {@link DynamicAnimation#start()}.
+     *
+     * @throws AndroidRuntimeException if this method is not called on the main thread
+     */
+    public void start() {
+        start(System.nanoTime());
+    }
+
+    // The fling starts moving from the given time rather than from its first frame, so what's
+    // predicted right away matches what the frames step through.
+    void start(long startTime) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new AndroidRuntimeException("Animations may only be started on the main thread");
+        }
+        if (mRunning) return;
+        mRunning = true;
+        mPoint.mX = mX.getValue();
+        mPoint.mY = mY.getValue();
+        mPreviousX = mPoint.mX;
+        mPreviousY = mPoint.mY;
+        mFrameStepper.start(startTime);
+        AnimationHandler.getInstance().addAnimationFrameCallback(this, 0);
+    }
+
+    /**
+     * Cancels the on-going animation, see {@link DynamicAnimation#cancel()}.
+     *
+     * @throws AndroidRuntimeException if this method is not called on the main thread
+     */
+    public void cancel() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new AndroidRuntimeException("Animations may only be canceled on the main thread");
+        }
+        if (mRunning) endAnimationInternal();
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Predicts when the running animation will hit a wall next, exact as long as the animation
+     * isn't changed in the meantime.
+     *
+     * @return the time in the {@link System#nanoTime()} base, or -1 if the animation isn't running
+     * or comes to its end before hitting a wall
+     */
+    public long getTimeOfNextWallHit() {
+        if (!mRunning) return -1;
+        final var hit = updateTrajectory().getTimeOfNextBounce(0);
+        if (hit == Double.POSITIVE_INFINITY) return -1;
+        return mFrameStepper.getStateTime() + (long) (hit * 1_000_000_000);
+    }
+
+    /**
+     * Predicts the state of the running animation at the given time, however many walls it hits
+     * until then, see {@link Trajectory}. A stopped animation stays where it is.
+     *
+     * @param time  time in the {@link System#nanoTime()} base
+     * @param state the state to fill in
+     * @return the given state
+     */
+    public Trajectory.State getStateAt(long time, Trajectory.State state) {
+        if (!mRunning) {
+            state.x = mX.getValue();
+            state.y = mY.getValue();
+            state.velocityX = 0;
+            state.velocityY = 0;
+            state.bounces = 0;
+            return state;
+        }
+        return updateTrajectory().getStateAt((time - mFrameStepper.getStateTime()) / 1e9, state);
+    }
+
+    /************************** Private APIs below ********************************/
+
+    private Trajectory updateTrajectory() {
+        return mTrajectory.setStart(mPoint.mX, mPoint.mY, mPoint.mVelocityX, mPoint.mVelocityY)
+                .setWalls(mPoint.mLeft, mPoint.mTop, mPoint.mRight, mPoint.mBottom);
+    }
+
+    @Override
+    public boolean doAnimationFrame(long frameTime) {
+        // The steps start from when the fling was started, see start(long).
+        final boolean finished = mFrameStepper.doFrame(frameTime);
+        if (finished || mFrameStepper.getFixedTimeStep() == 0) {
+            setPropertyValues(mPoint.mX, mPoint.mY);
+        } else {
+            final float alpha = mFrameStepper.getAlpha();
+            setPropertyValues(mPreviousX + (mPoint.mX - mPreviousX) * alpha,
+                    mPreviousY + (mPoint.mY - mPreviousY) * alpha);
+        }
+        if (finished) endAnimationInternal();
+        return finished;
+    }
+
+    // Advances the state, bouncing off the walls crossed on the way, and returns whether the
+    // animation has finished.
+    private boolean step(long deltaT) {
+        mPreviousX = mPoint.mX;
+        mPreviousY = mPoint.mY;
+        mPoint.step(deltaT / 1e9, mFlingForce, mBounceListener);
+        if (mFlingForce.isAtEquilibrium(0, (float) Math.hypot(mPoint.mVelocityX, mPoint.mVelocityY))) {
+            mPoint.mVelocityX = 0;
+            mPoint.mVelocityY = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyWallHit(float x, float y, float velocityX, float velocityY, double elapsed) {
+        final var time = mFrameStepper.getStepStartTime() + (long) (elapsed * 1_000_000_000);
+        for (var i = 0; i < mWallHitListeners.size(); ++i) {
+            mWallHitListeners.get(i).onWallHit(this, x, y, velocityX, velocityY, time);
+        }
+    }
+
+    private void setPropertyValues(float x, float y) {
+        mX.setValue(x);
+        mY.setValue(y);
+        for (var i = 0; i < mUpdateListeners.size(); ++i) {
+            mUpdateListeners.get(i).onAnimationUpdate(this, mPoint.mX, mPoint.mY, mPoint.mVelocityX,
+                    mPoint.mVelocityY);
+        }
+    }
+
+    private void endAnimationInternal() {
+        mRunning = false;
+        AnimationHandler.getInstance().removeCallback(this);
+        mFrameStepper.reset();
+    }
+
+    /**
+     * Receives a notification on every frame of the animation, after both values are updated.
+     */
+    public interface OnAnimationUpdateListener {
+        /**
+         * @param animation the animation that the update listener is added to
+         * @param x         the current horizontal value of the animation
+         * @param y         the current vertical value of the animation
+         * @param velocityX the current horizontal velocity of the animation
+         * @param velocityY the current vertical velocity of the animation
+         */
+        void onAnimationUpdate(Fling2DAnimation animation, float x, float y, float velocityX,
+                               float velocityY);
+    }
+
+    /**
+     * Receives a notification each time the point bounces off one of the walls.
+     */
+    public interface OnWallHitListener {
+        /**
+         * @param animation the animation that bounced
+         * @param x         horizontal position where the wall was hit
+         * @param y         vertical position where the wall was hit
+         * @param velocityX horizontal velocity the wall was hit with, before it was reflected
+         * @param velocityY vertical velocity the wall was hit with, before it was reflected
+         * @param time      when the wall was hit, in the {@link System#nanoTime()} base
+         */
+        void onWallHit(Fling2DAnimation animation, float x, float y, float velocityX,
+                       float velocityY, long time);
+    }
+}
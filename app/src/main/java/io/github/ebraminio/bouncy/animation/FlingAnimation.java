@@ -145,7 +145,7 @@ public final class FlingAnimation extends DynamicAnimation<FlingAnimation> {
     @Override
     boolean updateValueAndVelocity(long deltaT) {
 
-        MassState state = mFlingForce.updateValueAndVelocity(mValue, mVelocity, deltaT);
+        MassState state = mFlingForce.updateValueAndVelocity(mValue, mVelocity, deltaT / 1e9);
         mValue = state.mValue;
         mVelocity = state.mVelocity;
 
@@ -204,16 +204,29 @@ public final class FlingAnimation extends DynamicAnimation<FlingAnimation> {
             return mFriction / DEFAULT_FRICTION;
         }
 
-        MassState updateValueAndVelocity(float value, float velocity, long deltaT) {
-            mMassState.mVelocity = (float) (velocity * Math.exp((deltaT / 1000f) * mFriction));
+        // The velocity decays by exp(friction * t).
+        float getFriction() {
+            return mFriction;
+        }
+
+        MassState updateValueAndVelocity(float value, float velocity, double seconds) {
+            mMassState.mVelocity = (float) (velocity * Math.exp(seconds * mFriction));
             mMassState.mValue = (float) (value - velocity / mFriction
-                    + velocity / mFriction * Math.exp(mFriction * deltaT / 1000f));
+                    + velocity / mFriction * Math.exp(mFriction * seconds));
             if (isAtEquilibrium(mMassState.mValue, mMassState.mVelocity)) {
                 mMassState.mVelocity = 0f;
             }
             return mMassState;
         }
 
+        // Solves value + velocity / friction * (exp(friction * t) - 1) = target for t in seconds,
+        // positive infinity when it's never reached.
+        double getTimeToReach(float value, float velocity, float target) {
+            final var ratio = 1 + mFriction * (target - value) / velocity;
+            if (velocity == 0 || !(ratio > 0 && ratio <= 1)) return Double.POSITIVE_INFINITY;
+            return Math.log(ratio) / mFriction;
+        }
+
         @Override
         public float getAcceleration(float position, float velocity) {
             return velocity * mFriction;
@@ -227,6 +240,10 @@ public final class FlingAnimation extends DynamicAnimation<FlingAnimation> {
         void setValueThreshold(float threshold) {
             mVelocityThreshold = threshold * VELOCITY_THRESHOLD_MULTIPLIER;
         }
+
+        float getVelocityThreshold() {
+            return mVelocityThreshold;
+        }
     }
 
 }
@@ -0,0 +1,135 @@
+package io.github.ebraminio.bouncy.animation;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how evenly animation frames are paced. Every frame dispatched by the
+ * {@link AnimationHandler} records the time since the previous frame, its deltaT, from the vsync
+ * times reported by the Choreographer, and how long after its vsync it was dispatched. The latest
+ * {@link #CAPACITY} frames are kept in a ring buffer to report percentiles, a histogram of deltaT
+ * and the late frames, those taking at least half as long again as the typical frame, so that
+ * one or more vsyncs were missed.
+ * <p>
+ * Only frames that follow each other while something animates are counted, the gap until
+ * animations start again isn't a frame. The report is printed by {@code adb shell dumpsys activity
+ * io.github.ebraminio.bouncy/.MainActivity}, and logged every {@link #CAPACITY} frames once
+ * {@code adb shell setprop log.tag.FramePacingTracker DEBUG} is set.
+ */
+public final class FramePacingTracker {
+    private static final String TAG = "FramePacingTracker";
+    static final int CAPACITY = 512;
+    // Width of the histogram buckets in nanoseconds, the last one takes all the longer frames
+    static final long BUCKET_WIDTH = 1_000_000;
+    static final int BUCKETS = 34;
+
+    // deltaT and the delay from vsync to dispatch of the latest CAPACITY frames, in nanoseconds
+    private final long[] mIntervals = new long[CAPACITY];
+    private final long[] mDelays = new long[CAPACITY];
+    private int mCount = 0;
+    private long mLastFrameTime = 0;
+
+    /**
+     * Returns the tracker of the animations running on the calling thread.
+     */
+    public static FramePacingTracker getInstance() {
+        return AnimationHandler.getInstance().getFramePacingTracker();
+    }
+
+    FramePacingTracker() {
+    }
+
+    void record(long frameTime, long currentTime) {
+        if (mLastFrameTime != 0) {
+            synchronized (this) {
+                mIntervals[mCount % CAPACITY] = frameTime - mLastFrameTime;
+                mDelays[mCount % CAPACITY] = currentTime - frameTime;
+                ++mCount;
+            }
+            if (mCount % CAPACITY == 0 && Log.isLoggable(TAG, Log.DEBUG)) {
+                for (final var line : format()) Log.d(TAG, line);
+            }
+        }
+        mLastFrameTime = frameTime;
+    }
+
+    // The next frame recorded doesn't follow the last one.
+    void stop() {
+        mLastFrameTime = 0;
+    }
+
+    /**
+     * Returns the p-th percentile of the time between frames in nanoseconds, or -1 if no frame
+     * has been recorded yet.
+     */
+    public synchronized long getIntervalPercentile(double p) {
+        return getPercentile(getSorted(mIntervals), p);
+    }
+
+    /**
+     * Returns the p-th percentile of how long after their vsync frames were dispatched in
+     * nanoseconds, or -1 if no frame has been recorded yet.
+     */
+    public synchronized long getDelayPercentile(double p) {
+        return getPercentile(getSorted(mDelays), p);
+    }
+
+    /**
+     * Returns how many of the latest frames missed at least one vsync.
+     */
+    public synchronized int getLateFrames() {
+        final var sorted = getSorted(mIntervals);
+        // The typical frame is the median one, which doesn't count on knowing the refresh rate
+        final var late = getPercentile(sorted, 50) * 3 / 2;
+        var count = 0;
+        for (final var interval : sorted) if (interval >= late) ++count;
+        return count;
+    }
+
+    private long[] getSorted(long[] values) {
+        final var sorted = Arrays.copyOf(values, Math.min(mCount, CAPACITY));
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long getPercentile(long[] sorted, double p) {
+        if (sorted.length == 0) return -1;
+        // Nearest rank
+        final var rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private synchronized String[] format() {
+        final var frames = Math.min(mCount, CAPACITY);
+        final var histogram = new int[BUCKETS];
+        for (var i = 0; i < frames; ++i) {
+            ++histogram[(int) Math.min(BUCKETS - 1, mIntervals[i] / BUCKET_WIDTH)];
+        }
+        final var lines = new String[3 + BUCKETS];
+        lines[0] = String.format(Locale.ROOT,
+                "deltaT  p50 %7.2fms  p95 %7.2fms  p99 %7.2fms  (%d frames)",
+                getIntervalPercentile(50) / 1e6, getIntervalPercentile(95) / 1e6,
+                getIntervalPercentile(99) / 1e6, frames);
+        lines[1] = String.format(Locale.ROOT,
+                "delay   p50 %7.2fms  p95 %7.2fms  p99 %7.2fms",
+                getDelayPercentile(50) / 1e6, getDelayPercentile(95) / 1e6,
+                getDelayPercentile(99) / 1e6);
+        lines[2] = String.format(Locale.ROOT, "late    %d of %d frames", getLateFrames(), frames);
+        var count = 3;
+        for (var i = 0; i < BUCKETS; ++i) {
+            if (histogram[i] == 0) continue;
+            lines[count++] = i == BUCKETS - 1
+                    ? String.format(Locale.ROOT, "  >=%2dms %5d", i, histogram[i])
+                    : String.format(Locale.ROOT, "  %2d-%2dms %4d", i, i + 1, histogram[i]);
+        }
+        return Arrays.copyOf(lines, count);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Animation frame pacing, latest " + CAPACITY + " frames:");
+        for (final var line : format()) writer.println(prefix + "  " + line);
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.ebraminio.bouncy.animation;
+
+/**
+ * Turns the frame times of an animation into the steps its physics advances by, shared by the
+ * animations so they all step the same way. Without a fixed time step that's a single step per
+ * frame of the time since the previous frame, see {@link DynamicAnimation#setFixedTimeStep(long)}
+ * for steps of a fixed length.
+ */
+final class FrameStepper {
+
+    // The most time in nanoseconds simulated in fixed steps in a single frame.
+    private static final long MAX_FIXED_STEPS_TIME = 250_000_000;
+
+    /**
+     * Advances the physics of an animation.
+     */
+    interface Step {
+        /**
+         * @param deltaT length of the step in nanoseconds, it starts at
+         *               {@link FrameStepper#getStepStartTime()}
+         * @return whether the animation has finished
+         */
+        boolean step(long deltaT);
+    }
+
+    private final Step mStep;
+
+    // Last frame time, 0 before the first frame.
+    private long mLastFrameTime = 0;
+    // Physics step in nanoseconds, or 0 to step once per frame with the frame's deltaT.
+    private long mFixedTimeStep = 0;
+    // Time not yet simulated with fixed steps, always less than a step after each frame.
+    private long mAccumulatedTime = 0;
+    // Time the step in progress starts from.
+    private long mStepStartTime = 0;
+
+    FrameStepper(Step step) {
+        mStep = step;
+    }
+
+    void setFixedTimeStep(long timeStep) {
+        if (timeStep < 0) {
+            throw new IllegalArgumentException("Time step can't be negative");
+        }
+        mFixedTimeStep = timeStep;
+    }
+
+    long getFixedTimeStep() {
+        return mFixedTimeStep;
+    }
+
+    /**
+     * Starts the steps from the given time instead of from the first frame, so the state of the
+     * animation is known to be at that time before any frame is drawn.
+     *
+     * @param time time in the {@link System#nanoTime()} base
+     */
+    void start(long time) {
+        mLastFrameTime = time;
+        mAccumulatedTime = 0;
+    }
+
+    /**
+     * Steps through the time since the previous frame, stopping early once the animation has
+     * finished. Unless {@link #start(long)} is called, the first frame only sets where the steps
+     * start from. A frame from before the steps start is skipped.
+     *
+     * @return whether the animation has finished
+     */
+    boolean doFrame(long frameTime) {
+        if (mLastFrameTime == 0) {
+            mLastFrameTime = frameTime;
+            return false;
+        }
+        if (frameTime <= mLastFrameTime) return false;
+        final long deltaT = frameTime - mLastFrameTime;
+        mStepStartTime = mLastFrameTime;
+        mLastFrameTime = frameTime;
+        if (mFixedTimeStep == 0) {
+            return mStep.step(deltaT);
+        }
+        // After a long stall, e.g. in the background, simulate just a bit of it rather than
+        // catching up on all of it in a single frame.
+        mAccumulatedTime += Math.min(deltaT, MAX_FIXED_STEPS_TIME);
+        boolean finished = false;
+        while (mAccumulatedTime >= mFixedTimeStep && !finished) {
+            mStepStartTime = getStateTime();
+            finished = mStep.step(mFixedTimeStep);
+            mAccumulatedTime -= mFixedTimeStep;
+        }
+        return finished;
+    }
+
+    boolean isFirstFrame() {
+        return mLastFrameTime == 0;
+    }
+
+    /**
+     * Returns where the frame is between the last two fixed steps, from 0 for the one before to 1
+     * for the last one, which is always 1 without a fixed time step.
+     */
+    float getAlpha() {
+        return mFixedTimeStep == 0 ? 1 : (float) mAccumulatedTime / mFixedTimeStep;
+    }
+
+    // Time the state of the animation is at in the System.nanoTime() base, or 0 before the first
+    // frame. With a fixed time step that's behind the last frame by the time that isn't simulated
+    // yet.
+    long getStateTime() {
+        return mLastFrameTime == 0 ? 0 : mLastFrameTime - mAccumulatedTime;
+    }
+
+    // Time the state of the animation is at during a step.
+    long getStepStartTime() {
+        return mStepStartTime;
+    }
+
+    /**
+     * Forgets the frames so far, for when the animation ends.
+     */
+    void reset() {
+        mLastFrameTime = 0;
+        mAccumulatedTime = 0;
+    }
+}
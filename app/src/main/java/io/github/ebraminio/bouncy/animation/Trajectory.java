@@ -0,0 +1,243 @@
+package io.github.ebraminio.bouncy.animation;
+
+/**
+ * <p>Closed form of a two-dimensional fling bouncing between walls, evaluated at any time without
+ * stepping through the frames before it. Bounces are unfolded: the fling moves as if there were
+ * no walls, along a path that only ever goes one way on each axis, and the box is mirrored across
+ * each wall it would have crossed. Folding that position back into the box gives where the fling
+ * really is, and how many times it was mirrored gives the number of bounces. So any time costs
+ * the same to evaluate, however many bounces happen before it.
+ *
+ * <p>Like {@link Fling2DAnimation}, whose predictions are made with a trajectory from its current
+ * state, the fling comes to rest once its speed falls under the threshold derived from
+ * {@link #setMinimumVisibleChange(float)}. The animation itself stops at the end of the step that
+ * happens in.
+ */
+public final class Trajectory {
+
+    // Multiplier to the min visible change value for value threshold
+    private static final float THRESHOLD_MULTIPLIER = 0.75f;
+
+    private final FlingAnimation.DragForce mFlingForce = new FlingAnimation.DragForce();
+
+    private float mStartX = 0;
+    private float mStartY = 0;
+    private float mStartVelocityX = 0;
+    private float mStartVelocityY = 0;
+
+    private float mLeft = -Float.MAX_VALUE;
+    private float mTop = -Float.MAX_VALUE;
+    private float mRight = Float.MAX_VALUE;
+    private float mBottom = Float.MAX_VALUE;
+
+    // When the fling comes to rest, NaN until computed for the current parameters
+    private double mRestTime = Double.NaN;
+
+    /**
+     * Position, velocity and number of bounces of a trajectory at some time.
+     */
+    public static final class State {
+        public float x;
+        public float y;
+        public float velocityX;
+        public float velocityY;
+        /**
+         * Bounces off the walls since the start, a bounce in a corner counts as two.
+         */
+        public int bounces;
+    }
+
+    public Trajectory() {
+        mFlingForce.setValueThreshold(DynamicAnimation.MIN_VISIBLE_CHANGE_PIXELS * THRESHOLD_MULTIPLIER);
+    }
+
+    /**
+     * Sets where the fling starts and how fast, the start position has to be within the walls.
+     *
+     * @return the trajectory whose start is being set
+     */
+    public Trajectory setStart(float x, float y, float velocityX, float velocityY) {
+        mStartX = x;
+        mStartY = y;
+        mStartVelocityX = velocityX;
+        mStartVelocityY = velocityY;
+        mRestTime = Double.NaN;
+        return this;
+    }
+
+    /**
+     * See {@link FlingAnimation#setFriction(float)}.
+     */
+    public Trajectory setFriction(float friction) {
+        if (friction <= 0) {
+            throw new IllegalArgumentException("Friction must be positive");
+        }
+        mFlingForce.setFrictionScalar(friction);
+        mRestTime = Double.NaN;
+        return this;
+    }
+
+    public float getFriction() {
+        return mFlingForce.getFrictionScalar();
+    }
+
+    /**
+     * See {@link DynamicAnimation#setMinimumVisibleChange(float)}.
+     */
+    public Trajectory setMinimumVisibleChange(float minimumVisibleChange) {
+        if (minimumVisibleChange <= 0) {
+            throw new IllegalArgumentException("Minimum visible change must be positive.");
+        }
+        mFlingForce.setValueThreshold(minimumVisibleChange * THRESHOLD_MULTIPLIER);
+        mRestTime = Double.NaN;
+        return this;
+    }
+
+    /**
+     * See {@link Fling2DAnimation#setWalls(float, float, float, float)}.
+     *
+     * @return the trajectory whose walls are being set
+     */
+    public Trajectory setWalls(float left, float top, float right, float bottom) {
+        if (left > right || top > bottom) {
+            throw new IllegalArgumentException("Walls can't be inside out");
+        }
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+        return this;
+    }
+
+    /**
+     * Returns how long after the start the fling comes to rest, in seconds.
+     */
+    public double getRestTime() {
+        if (Double.isNaN(mRestTime)) {
+            final var speed = Math.hypot(mStartVelocityX, mStartVelocityY);
+            final var threshold = mFlingForce.getVelocityThreshold();
+            mRestTime = speed > threshold
+                    ? Math.log(threshold / speed) / mFlingForce.getFriction() : 0;
+        }
+        return mRestTime;
+    }
+
+    /**
+     * Returns the horizontal position the fling comes to rest at.
+     */
+    public float getRestX() {
+        final var decay = Math.exp(mFlingForce.getFriction() * getRestTime());
+        return (float) fold(getUnfolded(mStartX, mStartVelocityX, decay), mLeft, mRight);
+    }
+
+    /**
+     * Returns the vertical position the fling comes to rest at.
+     */
+    public float getRestY() {
+        final var decay = Math.exp(mFlingForce.getFriction() * getRestTime());
+        return (float) fold(getUnfolded(mStartY, mStartVelocityY, decay), mTop, mBottom);
+    }
+
+    /**
+     * Evaluates the trajectory at the given time.
+     *
+     * @param seconds time since the start, past the rest time the fling stays at rest
+     * @param state   the state to fill in
+     * @return the given state
+     */
+    public State getStateAt(double seconds, State state) {
+        final var restTime = getRestTime();
+        final var time = Math.max(0, Math.min(seconds, restTime));
+        // Both axes slow down the same
+        final var decay = Math.exp(mFlingForce.getFriction() * time);
+        final var velocityDecay = seconds >= restTime ? 0 : decay;
+
+        final var x = getUnfolded(mStartX, mStartVelocityX, decay);
+        final var y = getUnfolded(mStartY, mStartVelocityY, decay);
+        state.x = (float) fold(x, mLeft, mRight);
+        state.y = (float) fold(y, mTop, mBottom);
+        state.velocityX = (float) (mStartVelocityX * velocityDecay * getDirection(x, mLeft, mRight));
+        state.velocityY = (float) (mStartVelocityY * velocityDecay * getDirection(y, mTop, mBottom));
+        state.bounces = countBounces(mStartX, mStartVelocityX, x, mLeft, mRight)
+                + countBounces(mStartY, mStartVelocityY, y, mTop, mBottom);
+        return state;
+    }
+
+    /**
+     * Returns when the first bounce strictly after the given time happens.
+     *
+     * @param seconds time since the start
+     * @return time since the start in seconds, or positive infinity if the fling comes to rest
+     * before bouncing again
+     */
+    public double getTimeOfNextBounce(double seconds) {
+        final var time = Math.max(0, Math.min(seconds, getRestTime()));
+        final var decay = Math.exp(mFlingForce.getFriction() * time);
+        final var next = Math.min(
+                getTimeOfNextBounce(mStartX, mStartVelocityX, time, decay, mLeft, mRight),
+                getTimeOfNextBounce(mStartY, mStartVelocityY, time, decay, mTop, mBottom));
+        return next <= getRestTime() ? next : Double.POSITIVE_INFINITY;
+    }
+
+    /************************** Private APIs below ********************************/
+
+    private static boolean isBounded(float lower, float upper) {
+        return lower != -Float.MAX_VALUE && upper != Float.MAX_VALUE && upper > lower;
+    }
+
+    // Position as if there were no walls, once the velocity has decayed by the given factor
+    private double getUnfolded(float start, float velocity, double decay) {
+        return start + velocity / mFlingForce.getFriction() * (decay - 1);
+    }
+
+    // Where an unfolded position is in the box, the box is mirrored across every wall so every
+    // other copy of it is flipped.
+    private static double fold(double unfolded, float lower, float upper) {
+        if (!isBounded(lower, upper)) return unfolded;
+        final double length = upper - lower;
+        final var phase = floorMod(unfolded - lower, 2 * length);
+        return phase <= length ? lower + phase : upper - (phase - length);
+    }
+
+    // 1 where the fling moves the same way as without walls, -1 in the flipped copies of the box.
+    private static int getDirection(double unfolded, float lower, float upper) {
+        if (!isBounded(lower, upper)) return 1;
+        final double length = upper - lower;
+        return floorMod(unfolded - lower, 2 * length) <= length ? 1 : -1;
+    }
+
+    // The walls between the start and the unfolded position, the fling only goes one way
+    // unfolded.
+    private static int countBounces(float start, float velocity, double unfolded, float lower,
+                                    float upper) {
+        if (!isBounded(lower, upper)) return 0;
+        final double length = upper - lower;
+        if (velocity > 0) {
+            return (int) (Math.floor((unfolded - lower) / length) - Math.floor((start - lower) / length));
+        }
+        return (int) (Math.ceil((start - lower) / length) - Math.ceil((unfolded - lower) / length));
+    }
+
+    private double getTimeOfNextBounce(float start, float velocity, double seconds, double decay,
+                                       float lower, float upper) {
+        if (velocity == 0 || !isBounded(lower, upper)) return Double.POSITIVE_INFINITY;
+        final double length = upper - lower;
+        final var cells = (getUnfolded(start, velocity, decay) - lower) / length;
+        final var direction = velocity > 0 ? 1 : -1;
+        // The next mirrored wall ahead of the unfolded position, or the one after it when the
+        // position is on a wall but rounded to just before it.
+        var wall = velocity > 0 ? Math.floor(cells) + 1 : Math.ceil(cells) - 1;
+        final var friction = mFlingForce.getFriction();
+        for (var i = 0; i < 2; ++i, wall += direction) {
+            final var ratio = 1 + friction * (lower + length * wall - start) / velocity;
+            if (!(ratio > 0)) return Double.POSITIVE_INFINITY;
+            final var time = Math.log(ratio) / friction;
+            if (time > seconds) return time;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static double floorMod(double value, double modulus) {
+        return value - modulus * Math.floor(value / modulus);
+    }
+}
@@ -0,0 +1,368 @@
+package io.github.ebraminio.bouncy.audio;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+
+import io.github.ebraminio.bouncy.synth.Mixer;
+import io.github.ebraminio.bouncy.synth.Voice;
+
+/**
+ * Process-wide audio output. It owns a single streaming {@link AudioTrack} and a mixing thread
+ * that feeds it with the sum of all active {@link Voice}s, so playing a note never creates a new
+ * native track however often it happens.
+ * <p>
+ * Mixing happens at the native output sample rate of the device in blocks of its native buffer
+ * size, so the platform doesn't have to resample and the track can take the low latency path.
+ * <p>
+ * The track is paused once there has been nothing to play for a while and the mixing thread then
+ * sleeps until the next voice arrives.
+ * <p>
+ * Voices played with a {@link LatencyTracker.Trace} are followed until their first frame is heard,
+ * which is found from the track's timestamps on KitKat and newer. The same timestamps tell the
+ * output latency, which {@link #schedule(Voice, int, float, float, long)} compensates for.
+ */
+public final class AudioEngine {
+    private static final String TAG = "AudioEngine";
+    private static final int DEFAULT_SAMPLE_RATE = 44100;
+    private static final int DEFAULT_BLOCK_SIZE = 256;
+    // Give up on learning when a note was heard if the track has no timestamps by then.
+    private static final long TIMESTAMP_TIMEOUT = 1_000_000_000;
+
+    private static AudioEngine sInstance;
+
+    private final int mSampleRate;
+    private final int mBlockSize;
+    // About a second of silence before the track gets paused.
+    private final int mIdleBlocks;
+    private final Mixer mMixer;
+    private final Object mLock = new Object();
+    private Thread mThread;
+    private final LatencyTracker mLatencyTracker = new LatencyTracker();
+    // Only touched by the mixing thread
+    private final ArrayList<LatencyTracker.Trace> mUnwrittenTraces = new ArrayList<>();
+    private final ArrayList<LatencyTracker.Trace> mUnplayedTraces = new ArrayList<>();
+    // Mixer frame position at which the track's own frame position started from zero
+    private long mTrackStartFrame = 0;
+    // A mixer frame and the time it's heard at, or a time of 0 while the track isn't playing
+    private final Object mClockLock = new Object();
+    private long mClockFrame = 0;
+    private long mClockTime = 0;
+    // Nanoseconds from mixing a block to hearing it, until measured just the track's two blocks
+    private volatile long mOutputLatency;
+
+    public static synchronized AudioEngine getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AudioEngine(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AudioEngine(Context context) {
+        var sampleRate = 0;
+        var blockSize = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            final var audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+            sampleRate = parseProperty(audioManager, AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+            blockSize = parseProperty(audioManager, AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER);
+        }
+        if (sampleRate <= 0) sampleRate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+        mSampleRate = sampleRate > 0 ? sampleRate : DEFAULT_SAMPLE_RATE;
+        mBlockSize = blockSize > 0 ? blockSize : DEFAULT_BLOCK_SIZE;
+        mIdleBlocks = mSampleRate / mBlockSize;
+        mMixer = new Mixer(mBlockSize);
+        mOutputLatency = 2L * mBlockSize * 1_000_000_000 / mSampleRate;
+    }
+
+    private static int parseProperty(AudioManager audioManager, String key) {
+        final var value = audioManager.getProperty(key);
+        if (value == null) return 0;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * Returns the mixer, e.g. to configure its polyphony.
+     */
+    public Mixer getMixer() {
+        return mMixer;
+    }
+
+    public LatencyTracker getLatencyTracker() {
+        return mLatencyTracker;
+    }
+
+    /**
+     * Starts playing the voice at full gain in the center with the next mixed block. Safe to call
+     * from any thread.
+     */
+    public void play(Voice voice) {
+        play(voice, Mixer.NO_NOTE, 1, 0);
+    }
+
+    /**
+     * Same as {@link #play(Voice)} for a voice playing the given note, see
+     * {@link Mixer#addVoice(Voice, int, float, float)}.
+     */
+    public void play(Voice voice, int note, float gain, float pan) {
+        play(voice, note, gain, pan, null);
+    }
+
+    /**
+     * Same as {@link #play(Voice, int, float, float)}, following the voice with the trace, if any,
+     * until it's heard.
+     */
+    public void play(Voice voice, int note, float gain, float pan, LatencyTracker.Trace trace) {
+        if (trace == null) {
+            mMixer.addVoice(voice, note, gain, pan);
+        } else {
+            trace.mark(LatencyTracker.Stage.QUEUED);
+            mMixer.addVoice(voice, note, gain, pan, frame -> {
+                trace.mark(LatencyTracker.Stage.MIXED);
+                trace.frame = frame - mTrackStartFrame;
+                mUnwrittenTraces.add(trace);
+            });
+        }
+        wake();
+    }
+
+    /**
+     * Same as {@link #play(Voice, int, float, float)}, starting the voice so that its first frame
+     * is heard at the given time, or as soon as possible if that's too soon. Safe to call from any
+     * thread.
+     *
+     * @param time time in the {@link System#nanoTime()} base
+     */
+    public void schedule(Voice voice, int note, float gain, float pan, long time) {
+        mMixer.addVoice(voice, note, gain, pan, getFrameAt(time), null);
+        wake();
+    }
+
+    /**
+     * Drops a scheduled voice if it hasn't started yet, see {@link Mixer#cancel(Voice)}.
+     */
+    public void cancel(Voice voice) {
+        mMixer.cancel(voice);
+    }
+
+    // The mixer frame that is heard at the given time.
+    private long getFrameAt(long time) {
+        synchronized (mClockLock) {
+            if (mClockTime != 0) {
+                return mClockFrame + (time - mClockTime) * mSampleRate / 1_000_000_000;
+            }
+        }
+        // The next block is mixed right away once the thread wakes up.
+        return mMixer.getFramePosition()
+                + (time - System.nanoTime() - mOutputLatency) * mSampleRate / 1_000_000_000;
+    }
+
+    private void wake() {
+        synchronized (mLock) {
+            if (mThread == null) {
+                mThread = new Thread(this::run, TAG);
+                mThread.start();
+            }
+            mLock.notify();
+        }
+    }
+
+    private AudioTrack createTrack() {
+        final var channelMask = AudioFormat.CHANNEL_OUT_STEREO;
+        // Double buffering of native sized blocks, unless the platform requires more.
+        final var bufferSize = Math.max(
+                AudioTrack.getMinBufferSize(mSampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT),
+                2 * mBlockSize * Mixer.CHANNELS * Short.BYTES);
+        return createTrack(mSampleRate, channelMask, bufferSize, AudioTrack.MODE_STREAM);
+    }
+
+    /**
+     * Creates a 16-bit track for game sound effects. A streaming track asks for the low latency
+     * path where available, a static one is left to the default path as static tracks are the
+     * fallback of devices where low latency isn't available or doesn't work well.
+     */
+    static AudioTrack createTrack(int sampleRate, int channelMask, int bufferSize, int mode) {
+        final var encoding = AudioFormat.ENCODING_PCM_16BIT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            final var attributes = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_GAME)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build();
+            final var format = new AudioFormat.Builder()
+                    .setSampleRate(sampleRate)
+                    .setChannelMask(channelMask)
+                    .setEncoding(encoding)
+                    .build();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                final var builder = new AudioTrack.Builder()
+                        .setAudioAttributes(attributes)
+                        .setAudioFormat(format)
+                        .setBufferSizeInBytes(bufferSize)
+                        .setTransferMode(mode);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && mode == AudioTrack.MODE_STREAM) {
+                    builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+                }
+                return builder.build();
+            }
+            return new AudioTrack(attributes, format, bufferSize, mode,
+                    AudioManager.AUDIO_SESSION_ID_GENERATE);
+        }
+        return new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate, channelMask, encoding,
+                bufferSize, mode);
+    }
+
+    private void finishTraces(ArrayList<LatencyTracker.Trace> traces) {
+        for (final var trace : traces) trace.finish();
+        traces.clear();
+    }
+
+    // The timestamp pairs a frame with the time it was heard, without one the block just written is
+    // expected to be heard an output latency after it was mixed.
+    private void updateClock(AudioTimestamp timestamp, long blockFrame, long mixTime) {
+        final long frame;
+        final long time;
+        if (timestamp != null) {
+            frame = mTrackStartFrame + timestamp.framePosition;
+            time = timestamp.nanoTime;
+            final var latency = time + (blockFrame - frame) * 1_000_000_000 / mSampleRate - mixTime;
+            if (latency > 0) mOutputLatency = latency;
+        } else {
+            frame = blockFrame;
+            time = mixTime + mOutputLatency;
+        }
+        synchronized (mClockLock) {
+            mClockFrame = frame;
+            mClockTime = time;
+        }
+    }
+
+    // The timestamp is extrapolated to the frames the notes started at.
+    private void resolvePlayedTraces(AudioTimestamp timestamp) {
+        if (timestamp == null) {
+            final var now = System.nanoTime();
+            for (var i = mUnplayedTraces.size() - 1; i >= 0; --i) {
+                final var trace = mUnplayedTraces.get(i);
+                if (now - trace.getTime(LatencyTracker.Stage.WRITTEN) > TIMESTAMP_TIMEOUT) {
+                    trace.finish();
+                    mUnplayedTraces.remove(i);
+                }
+            }
+            return;
+        }
+        for (final var trace : mUnplayedTraces) {
+            trace.mark(LatencyTracker.Stage.PLAYED, timestamp.nanoTime
+                    + (trace.frame - timestamp.framePosition) * 1_000_000_000 / mSampleRate);
+        }
+        finishTraces(mUnplayedTraces);
+    }
+
+    // Forgets where the track was, for a track that starts playing from its first frame again.
+    private void resetTrackClock() {
+        finishTraces(mUnplayedTraces);
+        mTrackStartFrame = mMixer.getFramePosition();
+        synchronized (mClockLock) {
+            mClockTime = 0;
+        }
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        // Since Lollipop the block goes to the track straight from native memory.
+        final var directOutput = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        final var blockSamples = mBlockSize * Mixer.CHANNELS;
+        final var blockBytes = directOutput ?
+                ByteBuffer.allocateDirect(blockSamples * Short.BYTES).order(ByteOrder.nativeOrder()) : null;
+        final var blockArray = directOutput ? null : new short[blockSamples];
+        final var block = directOutput ? blockBytes.asShortBuffer() : ShortBuffer.wrap(blockArray);
+        final var timestamps = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+        final var timestamp = timestamps ? new AudioTimestamp() : null;
+        AudioTrack track = null;
+        try {
+            track = createTrack();
+            mTrackStartFrame = mMixer.getFramePosition();
+            var idleBlocks = 0;
+            // A track that died after it played is replaced, one that can't play at all isn't.
+            var written = false;
+            while (true) {
+                if (!mMixer.isIdle()) {
+                    idleBlocks = 0;
+                } else if (++idleBlocks > mIdleBlocks) {
+                    track.pause();
+                    track.flush();
+                    resetTrackClock();
+                    synchronized (mLock) {
+                        while (mMixer.isIdle()) mLock.wait();
+                    }
+                    idleBlocks = 0;
+                }
+                if (track.getPlayState() != AudioTrack.PLAYSTATE_PLAYING) track.play();
+                final var blockFrame = mMixer.getFramePosition();
+                final var mixTime = System.nanoTime();
+                mMixer.mix(block);
+                final int result;
+                if (directOutput) {
+                    blockBytes.clear();
+                    result = track.write(blockBytes, blockSamples * Short.BYTES, AudioTrack.WRITE_BLOCKING);
+                } else {
+                    result = track.write(blockArray, 0, blockSamples);
+                }
+                if (result < 0) {
+                    // E.g. the output device went away, which the track doesn't recover from.
+                    if (result != AudioTrack.ERROR_DEAD_OBJECT || !written) {
+                        Log.e(TAG, "Writing to the track failed with " + result);
+                        break;
+                    }
+                    Log.w(TAG, "The track died, recreating it");
+                    track.release();
+                    track = null;
+                    finishTraces(mUnwrittenTraces);
+                    resetTrackClock();
+                    track = createTrack();
+                    written = false;
+                    continue;
+                }
+                written = true;
+                if (!mUnwrittenTraces.isEmpty()) {
+                    for (final var trace : mUnwrittenTraces) trace.mark(LatencyTracker.Stage.WRITTEN);
+                    if (timestamps) mUnplayedTraces.addAll(mUnwrittenTraces);
+                    else finishTraces(mUnwrittenTraces);
+                    mUnwrittenTraces.clear();
+                }
+                final var heard = timestamps && track.getTimestamp(timestamp) ? timestamp : null;
+                updateClock(heard, blockFrame, mixTime);
+                if (!mUnplayedTraces.isEmpty()) resolvePlayedTraces(heard);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // E.g. no output device or too many tracks, the next voice played tries again.
+            Log.e(TAG, e.getMessage(), e);
+        } finally {
+            if (track != null) track.release();
+            synchronized (mClockLock) {
+                mClockTime = 0;
+            }
+            synchronized (mLock) {
+                mThread = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.ebraminio.bouncy.audio;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * A small, fixed pool of audio priority worker threads with a bounded queue. When more work
+ * arrives than the queue can hold, the {@link OverflowPolicy} decides what gets dropped, so a
+ * burst of requests degrades into skipped work instead of piling up threads.
+ */
+public final class AudioExecutor implements Executor {
+    private static final String TAG = "AudioExecutor";
+
+    public enum OverflowPolicy {
+        /**
+         * Discards the longest waiting task to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Discards the new task.
+         */
+        DROP_NEWEST,
+        /**
+         * Replaces a waiting task submitted with the same key, keeping its place in the queue.
+         * Behaves like {@link #DROP_OLDEST} when there is no such task and the queue is full.
+         */
+        COALESCE,
+    }
+
+    private final int mThreadCount;
+    private final int mCapacity;
+    private final OverflowPolicy mOverflowPolicy;
+    private final ArrayDeque<Task> mQueue;
+    private int mStartedThreads = 0;
+    private long mDroppedCount = 0;
+
+    /**
+     * @param threadCount    number of worker threads, started lazily as work arrives
+     * @param capacity       maximum number of tasks waiting to run
+     * @param overflowPolicy what to do with a task that doesn't fit in the queue
+     */
+    public AudioExecutor(int threadCount, int capacity, OverflowPolicy overflowPolicy) {
+        if (threadCount <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Thread count and capacity must be positive");
+        }
+        mThreadCount = threadCount;
+        mCapacity = capacity;
+        mOverflowPolicy = overflowPolicy;
+        mQueue = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(null, command);
+    }
+
+    /**
+     * Queues a task.
+     *
+     * @param key     identifies tasks that can be coalesced, {@code null} if it never should be
+     * @param command the task to run
+     */
+    public synchronized void execute(Object key, Runnable command) {
+        if (mOverflowPolicy == OverflowPolicy.COALESCE && key != null) {
+            for (final var task : mQueue) {
+                if (Objects.equals(task.key, key)) {
+                    task.command = command;
+                    ++mDroppedCount;
+                    return;
+                }
+            }
+        }
+        if (mQueue.size() >= mCapacity) {
+            ++mDroppedCount;
+            if (mOverflowPolicy == OverflowPolicy.DROP_NEWEST) return;
+            mQueue.poll();
+        }
+        mQueue.add(new Task(key, command));
+        if (mStartedThreads < mThreadCount && mStartedThreads < mQueue.size()) {
+            new Thread(this::run, TAG + "-" + mStartedThreads++).start();
+        }
+        notify();
+    }
+
+    /**
+     * Returns the number of tasks that were dropped or coalesced so far.
+     */
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        while (true) {
+            final Runnable command;
+            synchronized (this) {
+                while (mQueue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        --mStartedThreads;
+                        return;
+                    }
+                }
+                command = mQueue.poll().command;
+            }
+            try {
+                command.run();
+            } catch (Exception e) {
+                Log.e(TAG, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class Task {
+        final Object key;
+        Runnable command;
+
+        Task(Object key, Runnable command) {
+            this.key = key;
+            this.command = command;
+        }
+    }
+}
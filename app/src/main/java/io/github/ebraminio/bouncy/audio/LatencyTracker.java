@@ -0,0 +1,139 @@
+package io.github.ebraminio.bouncy.audio;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how long it takes from a hit until its note is heard. Each note carries a {@link Trace}
+ * that is stamped with {@link System#nanoTime()} as it passes every {@link Stage}, and finished
+ * traces are kept in a ring buffer of the latest {@link #CAPACITY} notes per stage to report
+ * percentiles from.
+ * <p>
+ * The percentiles are printed by {@code adb shell dumpsys activity
+ * io.github.ebraminio.bouncy/.MainActivity}, and logged every {@link #LOG_INTERVAL} notes once
+ * {@code adb shell setprop log.tag.LatencyTracker DEBUG} is set.
+ */
+public final class LatencyTracker {
+    private static final String TAG = "LatencyTracker";
+    static final int CAPACITY = 256;
+    static final int LOG_INTERVAL = 32;
+
+    public enum Stage {
+        /**
+         * The hit was detected.
+         */
+        HIT,
+        /**
+         * A worker picked up the note.
+         */
+        DISPATCHED,
+        /**
+         * The voice of the note is ready, synthesized or taken from the cache.
+         */
+        SYNTHESIZED,
+        /**
+         * The voice was handed to the audio engine.
+         */
+        QUEUED,
+        /**
+         * The first block of the voice was mixed.
+         */
+        MIXED,
+        /**
+         * The first block of the voice was written to the track.
+         */
+        WRITTEN,
+        /**
+         * The first frame of the voice reached the output, as reported by the track's timestamps.
+         */
+        PLAYED,
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    /**
+     * Times of a single note passing through the stages.
+     */
+    public final class Trace {
+        private final long[] mTimes = new long[STAGES.length];
+        // Position of the first frame of the voice on the track, once it is mixed
+        long frame = -1;
+
+        Trace() {
+            mTimes[Stage.HIT.ordinal()] = System.nanoTime();
+        }
+
+        public void mark(Stage stage) {
+            mark(stage, System.nanoTime());
+        }
+
+        void mark(Stage stage, long time) {
+            mTimes[stage.ordinal()] = time;
+        }
+
+        public long getTime(Stage stage) {
+            return mTimes[stage.ordinal()];
+        }
+
+        /**
+         * Records the trace into the statistics, stages it didn't reach are left out.
+         */
+        void finish() {
+            record(mTimes);
+        }
+    }
+
+    // Nanoseconds from the hit to each stage, the latest CAPACITY of them
+    private final long[][] mLatencies = new long[STAGES.length][CAPACITY];
+    private final int[] mCounts = new int[STAGES.length];
+    private int mTraces = 0;
+
+    /**
+     * Starts a trace for a hit that happened just now.
+     */
+    public Trace begin() {
+        return new Trace();
+    }
+
+    private void record(long[] times) {
+        final var hit = times[Stage.HIT.ordinal()];
+        synchronized (this) {
+            for (var i = 1; i < STAGES.length; ++i) {
+                if (times[i] == 0) continue;
+                mLatencies[i][mCounts[i]++ % CAPACITY] = times[i] - hit;
+            }
+            if (++mTraces % LOG_INTERVAL != 0) return;
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            for (var i = 1; i < STAGES.length; ++i) Log.d(TAG, format(STAGES[i]));
+        }
+    }
+
+    /**
+     * Returns the p-th percentile of the latency from the hit to the stage in nanoseconds, or -1
+     * if no note has reached the stage yet.
+     */
+    public synchronized long getPercentile(Stage stage, double p) {
+        final var count = Math.min(mCounts[stage.ordinal()], CAPACITY);
+        if (count == 0) return -1;
+        final var sorted = Arrays.copyOf(mLatencies[stage.ordinal()], count);
+        Arrays.sort(sorted);
+        // Nearest rank
+        final var rank = (int) Math.ceil(p / 100 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    private synchronized String format(Stage stage) {
+        return String.format(Locale.ROOT, "%-11s p50 %7.2fms  p95 %7.2fms  p99 %7.2fms  (%d notes)",
+                stage, getPercentile(stage, 50) / 1e6, getPercentile(stage, 95) / 1e6,
+                getPercentile(stage, 99) / 1e6, Math.min(mCounts[stage.ordinal()], CAPACITY));
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Latency from hit to each stage, latest " + CAPACITY + " notes:");
+        for (var i = 1; i < STAGES.length; ++i) writer.println(prefix + "  " + format(STAGES[i]));
+    }
+}
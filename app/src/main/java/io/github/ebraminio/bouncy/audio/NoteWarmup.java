@@ -0,0 +1,95 @@
+package io.github.ebraminio.bouncy.audio;
+
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import io.github.ebraminio.bouncy.synth.GuitarString;
+import io.github.ebraminio.bouncy.synth.NoteCache;
+
+/**
+ * Renders a set of notes into a {@link NoteCache} in the background, so they are ready before they
+ * are first played. Notes are spread over a fork-join pool using all but one of the cores, its
+ * workers run at background priority so the UI thread always wins. A note that isn't ready yet
+ * just goes through the cache's usual on demand path when played.
+ * <p>
+ * A warmup runs once, {@link #cancel()} skips whatever hasn't started rendering yet.
+ */
+public final class NoteWarmup {
+    private static final String TAG = "NoteWarmup";
+
+    private final NoteCache mNoteCache;
+    private final GuitarString mSynth;
+    private final int mSampleRate;
+    private final double mDuration;
+    private ExecutorService mExecutor;
+    private boolean mCanceled = false;
+
+    public NoteWarmup(NoteCache noteCache, GuitarString synth, int sampleRate, double duration) {
+        mNoteCache = noteCache;
+        mSynth = synth;
+        mSampleRate = sampleRate;
+        mDuration = duration;
+    }
+
+    /**
+     * Starts rendering the given notes, duplicates are rendered only once. No op if the warmup
+     * has already been started or canceled.
+     *
+     * @param semitones notes as semitones above the middle A
+     */
+    public synchronized void start(int[] semitones) {
+        if (mCanceled || mExecutor != null) return;
+        final var notes = new ArrayList<Integer>();
+        for (final var semitone : semitones) if (!notes.contains(semitone)) notes.add(semitone);
+        final var parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mExecutor = new ForkJoinPool(parallelism, BackgroundWorkerThread::new, null, false);
+        } else {
+            mExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG));
+        }
+        for (final var note : notes) mExecutor.execute(() -> render(note));
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Stops the warmup, notes being rendered at the moment are still completed.
+     */
+    public synchronized void cancel() {
+        mCanceled = true;
+        if (mExecutor != null) mExecutor.shutdownNow();
+    }
+
+    private void render(int note) {
+        synchronized (this) {
+            if (mCanceled) return;
+        }
+        try {
+            mNoteCache.get(mSynth, GuitarString.MIDDLE_A_SEMITONE + note, mSampleRate, mDuration);
+        } catch (Exception e) {
+            Log.e(TAG, e.getMessage(), e);
+        }
+    }
+
+    private static final class BackgroundWorkerThread extends ForkJoinWorkerThread {
+        BackgroundWorkerThread(ForkJoinPool pool) {
+            super(pool);
+            setName(TAG + "-" + getPoolIndex());
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.ebraminio.bouncy.audio;
+
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.util.Log;
+
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+
+/**
+ * An alternative to {@link AudioEngine} for devices without a low latency streaming path, where
+ * a static track starts sooner than a note can make it through the stream's buffers. Each note
+ * gets its own static track, loaded once, and a hit just rewinds and restarts it, so nothing is
+ * created or copied while playing.
+ * <p>
+ * Like with {@link io.github.ebraminio.bouncy.synth.Mixer.StealPolicy#SAME_NOTE}, playing a note
+ * again chokes the one already playing.
+ * <p>
+ * The notes skip the {@link io.github.ebraminio.bouncy.synth.Mixer} altogether, so the platform
+ * rather than the mixer limits how many play at once, other notes are never stolen for them and
+ * they play without reverb.
+ */
+public final class StaticTrackPool {
+    private static final String TAG = "StaticTrackPool";
+
+    private final int mSampleRate;
+    private final HashMap<Integer, AudioTrack> mTracks = new HashMap<>();
+    private boolean mReleased = false;
+
+    public StaticTrackPool(int sampleRate) {
+        mSampleRate = sampleRate;
+    }
+
+    /**
+     * Creates the track of a note and loads its mono samples into it. Meant to be called in the
+     * background, before the note is played.
+     */
+    public void load(int note, ShortBuffer samples) {
+        final var frames = samples.capacity();
+        final short[] pcm;
+        if (samples.hasArray() && samples.arrayOffset() == 0 && samples.array().length == frames) {
+            pcm = samples.array();
+        } else {
+            pcm = new short[frames];
+            final var source = samples.duplicate();
+            source.clear();
+            source.get(pcm);
+        }
+        final AudioTrack track;
+        try {
+            track = AudioEngine.createTrack(mSampleRate, AudioFormat.CHANNEL_OUT_MONO,
+                    frames * Short.BYTES, AudioTrack.MODE_STATIC);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Can't create a track for note " + note, e);
+            return;
+        }
+        // A static track takes all of its data in its first write.
+        if (track.write(pcm, 0, frames) != frames || track.getState() != AudioTrack.STATE_INITIALIZED) {
+            Log.w(TAG, "Can't load note " + note);
+            track.release();
+            return;
+        }
+        synchronized (this) {
+            if (mReleased) {
+                track.release();
+                return;
+            }
+            final var previous = mTracks.put(note, track);
+            if (previous != null) previous.release();
+        }
+    }
+
+    /**
+     * Plays a loaded note from its start.
+     *
+     * @param gain linear gain applied to the note
+     * @param pan  position in the stereo field, from -1 for left to 1 for right
+     * @return whether the note was loaded and played
+     */
+    public boolean play(int note, float gain, float pan, LatencyTracker.Trace trace) {
+        final AudioTrack track;
+        synchronized (this) {
+            track = mTracks.get(note);
+        }
+        if (track == null) return false;
+        // Same equal power panning as the mixer
+        final var angle = (Math.max(-1, Math.min(1, pan)) + 1) * Math.PI / 4;
+        synchronized (track) {
+            try {
+                track.stop();
+                track.reloadStaticData();
+                //noinspection deprecation, still the only way to pan a mono track
+                track.setStereoVolume((float) (gain * Math.cos(angle)), (float) (gain * Math.sin(angle)));
+                track.play();
+            } catch (IllegalStateException e) {
+                // Released meanwhile
+                return false;
+            }
+        }
+        if (trace != null) {
+            trace.mark(LatencyTracker.Stage.QUEUED);
+            trace.finish();
+        }
+        return true;
+    }
+
+    /**
+     * Releases all the tracks, the pool can't be used afterwards.
+     */
+    public void release() {
+        final AudioTrack[] tracks;
+        synchronized (this) {
+            mReleased = true;
+            tracks = mTracks.values().toArray(new AudioTrack[0]);
+            mTracks.clear();
+        }
+        for (final var track : tracks) {
+            synchronized (track) {
+                track.release();
+            }
+        }
+    }
+}
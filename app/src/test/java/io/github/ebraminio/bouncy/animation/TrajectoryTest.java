@@ -0,0 +1,98 @@
+package io.github.ebraminio.bouncy.animation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class TrajectoryTest {
+    private static final long START_TIME = 1_000_000_000L;
+    private static final long FRAME_TIME = 1_000_000;
+
+    private static Trajectory trajectory(float velocityX, float velocityY) {
+        return new Trajectory().setStart(50, 30, velocityX, velocityY).setWalls(0, 0, 100, 60);
+    }
+
+    // Steps the same fling frame by frame, checking the trajectory against it at each frame.
+    private static ArrayList<Long> simulate(Trajectory trajectory, float velocityX, float velocityY,
+                                            long timeStep) {
+        final var x = new FloatValueHolder(50);
+        final var y = new FloatValueHolder(30);
+        final var fling = new Fling2DAnimation(x, y).setWalls(0, 0, 100, 60).setFixedTimeStep(timeStep);
+        final var hits = new ArrayList<Long>();
+        fling.addWallHitListener((animation, hitX, hitY, hitVelocityX, hitVelocityY, time) ->
+                hits.add(time - START_TIME));
+        fling.setStartVelocity(velocityX, velocityY).start(START_TIME);
+        final var state = new Trajectory.State();
+        var time = START_TIME;
+        fling.doAnimationFrame(time);
+        while (fling.isRunning()) {
+            time += FRAME_TIME;
+            fling.doAnimationFrame(time);
+            // With a fixed time step the frames are drawn in between steps.
+            if (timeStep > 0) continue;
+            trajectory.getStateAt((time - START_TIME) / 1e9, state);
+            assertEquals(state.x, x.getValue(), .05);
+            assertEquals(state.y, y.getValue(), .05);
+            if (fling.isRunning()) assertEquals(hits.size(), state.bounces);
+        }
+        assertEquals(trajectory.getRestX(), x.getValue(), .05);
+        assertEquals(trajectory.getRestY(), y.getValue(), .05);
+        assertEquals(trajectory.getRestTime(), (time - START_TIME) / 1e9, FRAME_TIME / 1e9 + timeStep / 1e9);
+        return hits;
+    }
+
+    @Test
+    public void matchesSteppedFling() {
+        simulate(trajectory(9000, -4500), 9000, -4500, 0);
+        simulate(trajectory(-300, 2000), -300, 2000, 0);
+    }
+
+    @Test
+    public void matchesFixedStepFling() {
+        simulate(trajectory(9000, -4500), 9000, -4500, 1_000_000_000L / 240);
+    }
+
+    @Test
+    public void bouncesWhenSteppedFlingHitsWalls() {
+        final var trajectory = trajectory(9000, -4500);
+        final var hits = simulate(trajectory, 9000, -4500, 0);
+        assertFalse(hits.isEmpty());
+        var time = 0.0;
+        for (final var hit : hits) {
+            time = trajectory.getTimeOfNextBounce(time);
+            assertEquals(hit / 1e9, time, 1e-5);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, trajectory.getTimeOfNextBounce(time), 0);
+        assertEquals(hits.size(), trajectory.getStateAt(trajectory.getRestTime(), new Trajectory.State()).bounces);
+    }
+
+    @Test
+    public void predictsHitRightAfterStart() {
+        // Started in between frames, like from a touch event, with the frame it was started in
+        // reported from before then.
+        final var startTime = START_TIME + 7_000_000;
+        final var fling = new Fling2DAnimation(new FloatValueHolder(50), new FloatValueHolder(30))
+                .setWalls(0, 0, 100, 60);
+        final var hits = new ArrayList<Long>();
+        fling.addWallHitListener((animation, hitX, hitY, hitVelocityX, hitVelocityY, time) ->
+                hits.add(time));
+        fling.setStartVelocity(9000, -4500).start(startTime);
+        final var predicted = fling.getTimeOfNextWallHit();
+        for (var time = START_TIME; hits.isEmpty(); time += 16_000_000) fling.doAnimationFrame(time);
+        assertEquals(predicted, hits.get(0), 10_000);
+        fling.cancel();
+    }
+
+    @Test
+    public void unboundedFlingNeverBounces() {
+        final var trajectory = new Trajectory().setStart(0, 0, 1000, 1000);
+        assertEquals(Double.POSITIVE_INFINITY, trajectory.getTimeOfNextBounce(0), 0);
+        final var state = trajectory.getStateAt(trajectory.getRestTime() + 1, new Trajectory.State());
+        assertEquals(0, state.bounces);
+        assertEquals(0, state.velocityX, 0);
+        assertEquals(trajectory.getRestX(), state.x, 0);
+    }
+}
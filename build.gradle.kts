@@ -1,3 +1,4 @@
 plugins {
     alias(libs.plugins.com.android.application) apply false
+    alias(libs.plugins.me.champeau.jmh) apply false
 }
@@ -15,4 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Bouncy"
 include(":app")
+include(":synth")
  
\ No newline at end of file
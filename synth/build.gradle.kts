@@ -0,0 +1,25 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.me.champeau.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    // The benchmarks compare against the legacy synthesizer kept with the tests
+    includeTests = true
+    // Reports gc.alloc.rate.norm, the bytes allocated per operation
+    profilers.add("gc")
+}
@@ -0,0 +1,68 @@
+package io.github.ebraminio.bouncy.synth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to render a whole note with each synth variant, the gc profiler's
+ * {@code gc.alloc.rate.norm} is the bytes allocated per note. Run with {@code ./gradlew :synth:jmh}.
+ *
+ * @see VoiceBenchmark
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GuitarStringBenchmark {
+    /**
+     * Semitones above the middle A, the lowest, middle and highest notes of the scale.
+     */
+    @Param({"0", "7", "12"})
+    public int note;
+
+    @Param({"44100", "48000"})
+    public int sampleRate;
+
+    @Param({"1", "4"})
+    public double duration;
+
+    /**
+     * {@code legacy} is the original array based synthesizer, {@code streaming} the current one
+     * and {@code streaming-full} the current one without decay truncation.
+     */
+    @Param({"legacy", "streaming", "streaming-full"})
+    public String variant;
+
+    private final Random mRandom = new Random(0);
+    private GuitarString mSynth;
+    private double mFrequency;
+
+    @Setup
+    public void setUp() {
+        mFrequency = GuitarString.getStandardFrequency(GuitarString.MIDDLE_A_SEMITONE + note);
+        mSynth = variant.equals("streaming-full") ? new GuitarString(.9, .1, .1, .1, .1,
+                Double.NEGATIVE_INFINITY) : GuitarString.DEFAULT;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public short[] renderNote() {
+        if (variant.equals("legacy")) {
+            return LegacyGuitarString.guitarString(sampleRate, mFrequency, duration, mRandom);
+        }
+        return mSynth.render(sampleRate, mFrequency, duration);
+    }
+}
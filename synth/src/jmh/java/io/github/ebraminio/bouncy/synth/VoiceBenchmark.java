@@ -0,0 +1,81 @@
+package io.github.ebraminio.bouncy.synth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per sample of rendering playing notes block by block, the way {@link Mixer} does. A new
+ * note is plucked whenever the previous one ends, so the cost of starting notes is included.
+ * Run with {@code ./gradlew :synth:jmh}.
+ *
+ * @see GuitarStringBenchmark
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VoiceBenchmark {
+    private static final int BLOCK_SIZE = 256;
+
+    /**
+     * Semitones above the middle A, the lowest, middle and highest notes of the scale.
+     */
+    @Param({"0", "7", "12"})
+    public int note;
+
+    @Param({"44100", "48000"})
+    public int sampleRate;
+
+    @Param({"1", "4"})
+    public double duration;
+
+    /**
+     * {@code streaming} is the guitar string voice, {@code streaming-full} the same without
+     * decay truncation and {@code wavetable} the low-cost wavetable voice.
+     */
+    @Param({"streaming", "streaming-full", "wavetable"})
+    public String variant;
+
+    private final Random mRandom = new Random(0);
+    private final float[] mBlock = new float[BLOCK_SIZE];
+    private GuitarString mSynth;
+    private Wavetable mWavetable;
+    private double mFrequency;
+    private Voice mVoice;
+
+    @Setup
+    public void setUp() {
+        mFrequency = GuitarString.getStandardFrequency(GuitarString.MIDDLE_A_SEMITONE + note);
+        mSynth = variant.equals("streaming-full") ? new GuitarString(.9, .1, .1, .1, .1,
+                Double.NEGATIVE_INFINITY) : GuitarString.DEFAULT;
+        mWavetable = variant.equals("wavetable") ? Wavetable.DEFAULT : null;
+        mVoice = pluck();
+    }
+
+    private Voice pluck() {
+        if (mWavetable != null) return mWavetable.pluck(sampleRate, mFrequency, duration);
+        return mSynth.pluck(sampleRate, mFrequency, duration, mRandom);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(BLOCK_SIZE)
+    public float[] renderBlock() {
+        if (mVoice.render(mBlock, 0, BLOCK_SIZE) < BLOCK_SIZE) mVoice = pluck();
+        return mBlock;
+    }
+}
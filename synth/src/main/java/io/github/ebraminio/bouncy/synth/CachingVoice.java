@@ -0,0 +1,78 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Arrays;
+
+/**
+ * Plays a note while it is being synthesized and keeps the rendered PCM, handing the note over to
+ * its cache once it is released. A note that is stolen before it has played to the end, e.g. one
+ * retriggered over and over, is still cached, the rest of it is synthesized by the cache.
+ * <p>
+ * Rendering happens on the mixing thread, so the buffer for the whole note is allocated up front
+ * and the handover only publishes the voice to the cache, the note is finished, trimmed and cached
+ * by the next thread that asks the cache for a note.
+ */
+final class CachingVoice implements Voice {
+    // Block size the rest of a stolen note is synthesized in
+    private static final int FINISH_BLOCK_SIZE = 1024;
+
+    private final Voice mSource;
+    private final int mLength;
+    private final NoteCache mCache;
+    private final NoteCache.Key mKey;
+    private final short[] mSamples;
+    private int mPosition = 0;
+    // Whether the source has ended
+    private boolean mEnded = false;
+
+    /**
+     * @param length maximum length of the note
+     */
+    CachingVoice(Voice source, int length, NoteCache cache, NoteCache.Key key) {
+        mSource = source;
+        mLength = length;
+        mSamples = new short[length];
+        mCache = cache;
+        mKey = key;
+    }
+
+    @Override
+    public int render(float[] buffer, int offset, int frames) {
+        final var requested = Math.min(frames, mLength - mPosition);
+        final var rendered = mSource.render(buffer, offset, requested);
+        for (var i = 0; i < rendered; ++i) {
+            final var sample = Math.max(-1f, Math.min(1f, buffer[offset + i]));
+            mSamples[mPosition + i] = (short) (sample * Short.MAX_VALUE);
+        }
+        mPosition += rendered;
+        if (rendered < frames) mEnded = true;
+        return rendered;
+    }
+
+    NoteCache.Key getKey() {
+        return mKey;
+    }
+
+    /**
+     * Synthesizes what's left of the note if it was stolen before it ended and releases the
+     * source, only called once the voice has been released, off the mixing thread.
+     */
+    void finish() {
+        if (!mEnded) {
+            final var buffer = new float[FINISH_BLOCK_SIZE];
+            while (!mEnded) render(buffer, 0, FINISH_BLOCK_SIZE);
+        }
+        mSource.release();
+    }
+
+    /**
+     * Returns the rendered note, only called once it has been finished.
+     */
+    short[] getSamples() {
+        return mPosition == mSamples.length ? mSamples : Arrays.copyOf(mSamples, mPosition);
+    }
+
+    @Override
+    public void release() {
+        mCache.offerFinished(this);
+    }
+}
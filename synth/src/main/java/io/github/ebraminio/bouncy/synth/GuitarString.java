@@ -0,0 +1,102 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Karplus-Strong plucked string synthesizer. Instances are immutable and only hold the synthesis
+ * parameters, so they can be shared between threads and used as part of a cache key.
+ */
+public final class GuitarString implements Instrument {
+    public static final double MIDDLE_A_SEMITONE = 69;
+    private static final double MIDDLE_A_FREQUENCY = 440;
+
+    public static final double DEFAULT_SILENCE_FLOOR = -60;
+    public static final GuitarString DEFAULT = new GuitarString(.9, .1, .1, .1, .1);
+
+    // Pick-direction lowpass pole
+    final double p;
+    // Pick position as a fraction of the string length
+    final double beta;
+    // String-damping filter stretching factor
+    final double s;
+    // First-order string-tuning allpass coefficient
+    final double c;
+    // Dynamic-level, L ∈ (0, 1/3)
+    final double l;
+    // Level in dBFS under which a decaying note is considered over
+    final double silenceFloor;
+
+    public GuitarString(double p, double beta, double s, double c, double l) {
+        this(p, beta, s, c, l, DEFAULT_SILENCE_FLOOR);
+    }
+
+    /**
+     * @param silenceFloor level in dBFS that ends the note once its peak over a short window
+     *                     falls below it, or {@link Double#NEGATIVE_INFINITY} to always play
+     *                     notes for their full duration
+     */
+    public GuitarString(double p, double beta, double s, double c, double l, double silenceFloor) {
+        this.p = p;
+        this.beta = beta;
+        this.s = s;
+        this.c = c;
+        this.l = l;
+        this.silenceFloor = silenceFloor;
+    }
+
+    public static double getStandardFrequency(double note) {
+        return MIDDLE_A_FREQUENCY * Math.pow(2.0, (note - MIDDLE_A_SEMITONE) / 12);
+    }
+
+    /**
+     * Plucks the string, returning a voice that synthesizes the note block by block as it is
+     * rendered.
+     */
+    @Override
+    public GuitarStringVoice pluck(int sampleRate, double frequency, double duration) {
+        return pluck(sampleRate, frequency, duration, new Random());
+    }
+
+    // Based on https://habr.com/ru/post/514844/ and https://timiskhakov.github.io/posts/programming-guitar-music
+    public GuitarStringVoice pluck(int sampleRate, double frequency, double duration, Random random) {
+        return new GuitarStringVoice(this, sampleRate, frequency, duration, random);
+    }
+
+    /**
+     * Synthesizes the whole note as 16-bit PCM. The result is shorter than the duration if the
+     * note decays below the silence floor before that.
+     */
+    public short[] render(int sampleRate, double frequency, double duration/*1.0*/) {
+        final var length = (int) (sampleRate * duration);
+        final var voice = pluck(sampleRate, frequency, duration);
+        // Most notes end well before their duration, grown in case the estimate was short.
+        var result = new short[voice.getEstimatedLength()];
+        var rendered = 0;
+        while (true) {
+            rendered += voice.render(result, rendered, result.length - rendered);
+            if (rendered < result.length || result.length == length) break;
+            result = Arrays.copyOf(result, (int) Math.min(length, 2L * result.length));
+        }
+        return rendered == result.length ? result : Arrays.copyOf(result, rendered);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GuitarString other)) return false;
+        return p == other.p && beta == other.beta && s == other.s && c == other.c && l == other.l
+                && silenceFloor == other.silenceFloor;
+    }
+
+    @Override
+    public int hashCode() {
+        var result = Double.hashCode(p);
+        result = 31 * result + Double.hashCode(beta);
+        result = 31 * result + Double.hashCode(s);
+        result = 31 * result + Double.hashCode(c);
+        result = 31 * result + Double.hashCode(l);
+        result = 31 * result + Double.hashCode(silenceFloor);
+        return result;
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Random;
+
+/**
+ * Streaming form of {@link GuitarString}. The only per note state is a delay line of one period
+ * of the string, output is rendered on demand and the string-damping, tuning allpass and
+ * dynamic-level filters are all applied in one pass over each block.
+ * <p>
+ * Instead of normalising the whole note after the fact, the excitation is scaled up front based
+ * on the level of the first period of the note.
+ * <p>
+ * The peak level is tracked over short windows, once a window stays under the silence floor of
+ * the string the note is faded out and ends, which for most notes is well before its duration.
+ */
+public final class GuitarStringVoice implements Voice {
+    // Loss of each trip around the string
+    private static final float LOOP_GAIN = .996f;
+    // Level of the first period, leaving room for the second one which can be slightly louder
+    private static final float HEADROOM = .75f;
+    private static final int SHORT_BLOCK_SIZE = 256;
+    // Length of the level tracking window and of the final fade out, as fractions of a second
+    private static final int WINDOWS_PER_SECOND = 50;
+    private static final int FADES_PER_SECOND = 200;
+
+    private final float[] mDelayLine;
+    private int mLength;
+    private int mPosition = 0;
+    private int mFrame = 0;
+
+    private final float mSilenceFloor;
+    private final int mWindowLength;
+    private final int mFadeLength;
+    private int mWindowFrames = 0;
+    private float mWindowPeak = 0;
+    // Frame the fade out started at, -1 while the note is still sounding
+    private int mFadeStart = -1;
+
+    private final float mDampingA;
+    private final float mDampingB;
+    private final float mAllpass;
+    private final float mLowpassA;
+    private final float mLowpassB;
+    private final float mDry;
+    private final float mWet;
+
+    // Filter states
+    private float mLastDelayed = 0;
+    private float mLastDamped = 0;
+    private float mLastString = 0;
+    private float mLastLowpass = 0;
+
+    private float[] mShortBlock;
+
+    GuitarStringVoice(GuitarString synth, int sampleRate, double frequency, double duration, Random random) {
+        final var n = Math.max(1, (int) (sampleRate / frequency));
+        mDelayLine = new float[n];
+        mLength = (int) (sampleRate * duration);
+        mSilenceFloor = (float) Math.pow(10, synth.silenceFloor / 20);
+        mWindowLength = Math.max(1, sampleRate / WINDOWS_PER_SECOND);
+        mFadeLength = Math.max(1, sampleRate / FADES_PER_SECOND);
+
+        // Pick-direction lowpass filter
+        final var p = synth.p;
+        var lastOut = (1 - p) * random.nextDouble() * 2 - 1;
+        mDelayLine[0] = (float) lastOut;
+        for (var i = 1; i < n; ++i) {
+            lastOut = (1 - p) * (random.nextDouble() * 2 - 1) + p * lastOut;
+            mDelayLine[i] = (float) lastOut;
+        }
+
+        // Pick-position comb filter, done backwards so it can happen in place
+        var pick = (int) (synth.beta * n + .5);
+        if (pick == 0) pick = n;
+        for (var i = n - 1; i >= pick; --i) mDelayLine[i] -= mDelayLine[i - pick];
+
+        mDampingA = (float) (LOOP_GAIN * (1 - synth.s));
+        mDampingB = (float) (LOOP_GAIN * synth.s);
+        mAllpass = (float) synth.c;
+        final var wTilde = Math.PI * frequency / sampleRate;
+        mLowpassA = (float) (wTilde / (1 + wTilde));
+        mLowpassB = (float) ((1 - wTilde) / (1 + wTilde));
+        mDry = (float) Math.pow(synth.l, 4 / 3.0);
+        mWet = (float) (1 - synth.l);
+
+        // The loudest part of a note is within its first couple of periods, so the peak of the
+        // first one, which just filters the excitation, is a close enough estimate to normalise by.
+        var lastLowpass = 0f;
+        var lastString = 0f;
+        var max = 0f;
+        for (final var string : mDelayLine) {
+            lastLowpass = mLowpassA * (string + lastString) + mLowpassB * lastLowpass;
+            max = Math.max(max, Math.abs(mDry * string + mWet * lastLowpass));
+            lastString = string;
+        }
+        if (max > 0) for (var i = 0; i < n; ++i) mDelayLine[i] *= HEADROOM / max;
+    }
+
+    /**
+     * Returns an estimate of how long the note plays before decaying under the silence floor,
+     * which is rarely shorter than the real length. Higher harmonics lose more than the loop gain
+     * on each trip around the string, so only the fundamental has to be considered.
+     */
+    public int getEstimatedLength() {
+        if (mSilenceFloor <= 0) return mLength;
+        final var periods = Math.log(mSilenceFloor) / Math.log(LOOP_GAIN);
+        return (int) Math.min(mLength, (periods + 1) * mDelayLine.length + mWindowLength + mFadeLength);
+    }
+
+    @Override
+    public int render(float[] buffer, int offset, int frames) {
+        final var count = Math.min(frames, mLength - mFrame);
+        final var delayLine = mDelayLine;
+        final var length = delayLine.length;
+        var position = mPosition;
+        var lastDelayed = mLastDelayed;
+        var lastDamped = mLastDamped;
+        var lastString = mLastString;
+        var lastLowpass = mLastLowpass;
+        var peak = 0f;
+
+        var i = 0;
+        // The first trip plays the excitation as is.
+        for (; i < count && mFrame + i < length; ++i) {
+            final var string = delayLine[position];
+            lastLowpass = mLowpassA * (string + lastString) + mLowpassB * lastLowpass;
+            buffer[offset + i] = mDry * string + mWet * lastLowpass;
+            lastString = string;
+            if (++position == length) position = 0;
+        }
+        for (; i < count; ++i) {
+            // String-damping filter
+            final var delayed = delayLine[position];
+            final var damped = mDampingA * delayed + mDampingB * lastDelayed;
+            // First-order string-tuning allpass filter
+            final var string = mAllpass * (damped - lastString) + lastDamped;
+            // Dynamic-level lowpass filter
+            lastLowpass = mLowpassA * (string + lastString) + mLowpassB * lastLowpass;
+            final var sample = mDry * string + mWet * lastLowpass;
+            buffer[offset + i] = sample;
+            peak = Math.max(peak, Math.abs(sample));
+
+            delayLine[position] = string;
+            lastDelayed = delayed;
+            lastDamped = damped;
+            lastString = string;
+            if (++position == length) position = 0;
+        }
+
+        mPosition = position;
+        mLastDelayed = lastDelayed;
+        mLastDamped = lastDamped;
+        mLastString = lastString;
+        mLastLowpass = lastLowpass;
+        if (mFadeStart >= 0) {
+            final var step = 1f / mFadeLength;
+            for (var j = 0; j < count; ++j) buffer[offset + j] *= 1 - (mFrame + j - mFadeStart) * step;
+        } else {
+            trackLevel(peak, count);
+        }
+        mFrame += count;
+        return count;
+    }
+
+    private void trackLevel(float peak, int frames) {
+        if (mFrame < mDelayLine.length) return;
+        mWindowPeak = Math.max(mWindowPeak, peak);
+        mWindowFrames += frames;
+        if (mWindowFrames < mWindowLength) return;
+        if (mWindowPeak < mSilenceFloor) {
+            mFadeStart = mFrame + frames;
+            mLength = Math.min(mLength, mFadeStart + mFadeLength);
+        }
+        mWindowFrames = 0;
+        mWindowPeak = 0;
+    }
+
+    /**
+     * Same as {@link #render(float[], int, int)} but producing 16-bit PCM.
+     */
+    public int render(short[] buffer, int offset, int frames) {
+        if (mShortBlock == null) mShortBlock = new float[SHORT_BLOCK_SIZE];
+        var rendered = 0;
+        while (rendered < frames) {
+            final var count = render(mShortBlock, 0, Math.min(SHORT_BLOCK_SIZE, frames - rendered));
+            for (var i = 0; i < count; ++i) {
+                final var sample = Math.max(-1f, Math.min(1f, mShortBlock[i]));
+                buffer[offset + rendered + i] = (short) (sample * Short.MAX_VALUE);
+            }
+            rendered += count;
+            if (count < SHORT_BLOCK_SIZE) break;
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.ebraminio.bouncy.synth;
+
+/**
+ * Something that can play notes as {@link Voice}s.
+ */
+public interface Instrument {
+    /**
+     * Starts a note, returning the voice that renders it.
+     *
+     * @param duration the longest the note may play for in seconds, it can end sooner
+     */
+    Voice pluck(int sampleRate, double frequency, double duration);
+}
@@ -0,0 +1,316 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sums any number of mono {@link Voice}s into fixed-size blocks of interleaved stereo 16-bit PCM.
+ * Voices can be added from any thread, everything else is meant to be called only from the single
+ * mixing thread.
+ * <p>
+ * Each voice is placed in the stereo field with its own gain and pan as it is mixed, so the same
+ * rendered note can be played at any position and loudness.
+ * <p>
+ * At most {@link #setMaxVoices(int)} voices sound at once, when a new voice doesn't fit one of the
+ * playing voices is stolen according to the {@link StealPolicy}. A stolen voice is faded out over
+ * its last block to avoid a click and released right after.
+ * <p>
+ * Voices can also be scheduled to start at a given frame, anywhere within a block, e.g. to line a
+ * note up with something that happens in the future, and canceled until they start.
+ * <p>
+ * A {@link Reverb} can be set to run on every mixed block.
+ */
+public final class Mixer {
+    public static final int NO_NOTE = Integer.MIN_VALUE;
+    public static final int CHANNELS = 2;
+
+    public enum StealPolicy {
+        /**
+         * Steals the voice that has been playing the longest.
+         */
+        OLDEST,
+        /**
+         * Steals the voice with the lowest level in its last block.
+         */
+        QUIETEST,
+        /**
+         * Chokes the voice already playing the same note, like retriggering a string does, and
+         * otherwise falls back to {@link #OLDEST}.
+         */
+        SAME_NOTE,
+    }
+
+    /**
+     * Notified on the mixing thread when a voice gets mixed for the first time.
+     */
+    public interface StartListener {
+        /**
+         * @param frame position of the voice's first frame, counted like {@link #getFramePosition()}
+         */
+        void onVoiceStarted(long frame);
+    }
+
+    private final int mBlockSize;
+    private final ConcurrentLinkedQueue<ActiveVoice> mPendingVoices = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Voice> mCanceledVoices = new ConcurrentLinkedQueue<>();
+    // Voices waiting for their start frame.
+    private final ArrayList<ActiveVoice> mScheduledVoices = new ArrayList<>();
+    // Ordered from the oldest to the newest voice.
+    private final ArrayList<ActiveVoice> mVoices = new ArrayList<>();
+    private final float[] mVoiceBuffer;
+    private final float[] mMixBuffer;
+    private volatile int mMaxVoices = 16;
+    private volatile StealPolicy mStealPolicy = StealPolicy.OLDEST;
+    private volatile long mFramePosition = 0;
+    private volatile Reverb mReverb;
+
+    private static final class ActiveVoice {
+        final Voice voice;
+        final int note;
+        final float left;
+        final float right;
+        final StartListener listener;
+        final long startFrame;
+        // Frames of silence before the voice starts within the next block
+        int offset = 0;
+        float level = Float.MAX_VALUE;
+        boolean stolen = false;
+
+        ActiveVoice(Voice voice, int note, float gain, float pan, long startFrame,
+                    StartListener listener) {
+            this.voice = voice;
+            this.note = note;
+            this.startFrame = startFrame;
+            this.listener = listener;
+            // Equal power panning, keeps the loudness the same across the stereo field.
+            final var angle = (Math.max(-1, Math.min(1, pan)) + 1) * Math.PI / 4;
+            left = (float) (gain * Math.cos(angle));
+            right = (float) (gain * Math.sin(angle));
+        }
+    }
+
+    /**
+     * @param blockSize number of frames in a block, each frame holds {@link #CHANNELS} samples
+     */
+    public Mixer(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        mBlockSize = blockSize;
+        mVoiceBuffer = new float[blockSize];
+        mMixBuffer = new float[blockSize * CHANNELS];
+    }
+
+    public int getBlockSize() {
+        return mBlockSize;
+    }
+
+    public void setMaxVoices(int maxVoices) {
+        if (maxVoices <= 0) {
+            throw new IllegalArgumentException("Max voices must be positive");
+        }
+        mMaxVoices = maxVoices;
+    }
+
+    public int getMaxVoices() {
+        return mMaxVoices;
+    }
+
+    public void setStealPolicy(StealPolicy stealPolicy) {
+        mStealPolicy = stealPolicy;
+    }
+
+    public StealPolicy getStealPolicy() {
+        return mStealPolicy;
+    }
+
+    /**
+     * Sets the reverb applied to every block, or {@code null} for none. It has to handle blocks of
+     * {@link #getBlockSize()} frames.
+     */
+    public void setReverb(Reverb reverb) {
+        mReverb = reverb;
+    }
+
+    public Reverb getReverb() {
+        return mReverb;
+    }
+
+    /**
+     * Returns the number of frames mixed so far, i.e. the position of the next block. Safe to call
+     * from any thread.
+     */
+    public long getFramePosition() {
+        return mFramePosition;
+    }
+
+    /**
+     * Queues a voice to be mixed at full gain in the center, starting with the next block. Safe to
+     * call from any thread.
+     */
+    public void addVoice(Voice voice) {
+        addVoice(voice, NO_NOTE, 1, 0);
+    }
+
+    /**
+     * Queues a voice to be mixed starting with the next block. Safe to call from any thread.
+     *
+     * @param note identifies the note for {@link StealPolicy#SAME_NOTE}, or {@link #NO_NOTE}
+     * @param gain linear gain applied to the voice
+     * @param pan  position in the stereo field, from -1 for left to 1 for right
+     */
+    public void addVoice(Voice voice, int note, float gain, float pan) {
+        addVoice(voice, note, gain, pan, null);
+    }
+
+    /**
+     * Same as {@link #addVoice(Voice, int, float, float)}, notifying the listener, if any, once
+     * the voice starts.
+     */
+    public void addVoice(Voice voice, int note, float gain, float pan, StartListener listener) {
+        addVoice(voice, note, gain, pan, -1, listener);
+    }
+
+    /**
+     * Same as {@link #addVoice(Voice, int, float, float, StartListener)}, starting the voice at
+     * the given frame instead, or with the next block if that frame has already been mixed.
+     *
+     * @param startFrame position of the voice's first frame, counted like
+     *                   {@link #getFramePosition()}
+     */
+    public void addVoice(Voice voice, int note, float gain, float pan, long startFrame,
+                         StartListener listener) {
+        mPendingVoices.add(new ActiveVoice(voice, note, gain, pan, startFrame, listener));
+    }
+
+    /**
+     * Drops a voice that hasn't started yet and releases it, does nothing once it has started.
+     * Safe to call from any thread.
+     */
+    public void cancel(Voice voice) {
+        mCanceledVoices.add(voice);
+    }
+
+    /**
+     * Returns whether there is nothing left to mix, i.e. the next block would be silent. That
+     * includes the tail of the reverb, see {@link Reverb#isRinging()}.
+     */
+    public boolean isIdle() {
+        final var reverb = mReverb;
+        return mVoices.isEmpty() && mPendingVoices.isEmpty() && mScheduledVoices.isEmpty()
+                && (reverb == null || !reverb.isRinging());
+    }
+
+    /**
+     * Mixes the next block of all the active voices into {@code out}, which has to hold at least
+     * {@link #getBlockSize()} frames. Voices that have ended are dropped.
+     */
+    public void mix(short[] out) {
+        mix(ShortBuffer.wrap(out));
+    }
+
+    /**
+     * Same as {@link #mix(short[])}, writing the block from index 0 of the buffer regardless of
+     * its position, e.g. into a direct buffer that is handed to the audio output as is.
+     */
+    public void mix(ShortBuffer out) {
+        ActiveVoice pending;
+        while ((pending = mPendingVoices.poll()) != null) mScheduledVoices.add(pending);
+        Voice canceled;
+        while ((canceled = mCanceledVoices.poll()) != null) {
+            for (var i = 0; i < mScheduledVoices.size(); ++i) {
+                if (mScheduledVoices.get(i).voice != canceled) continue;
+                mScheduledVoices.remove(i);
+                canceled.release();
+                break;
+            }
+        }
+        final var blockEnd = mFramePosition + mBlockSize;
+        for (var i = 0; i < mScheduledVoices.size(); ) {
+            final var scheduled = mScheduledVoices.get(i);
+            if (scheduled.startFrame >= blockEnd) {
+                ++i;
+                continue;
+            }
+            mScheduledVoices.remove(i);
+            start(scheduled);
+        }
+
+        Arrays.fill(mMixBuffer, 0);
+        for (var i = 0; i < mVoices.size(); ) {
+            final var voice = mVoices.get(i);
+            final var offset = voice.offset;
+            voice.offset = 0;
+            final var frames = mBlockSize - offset;
+            final var rendered = voice.voice.render(mVoiceBuffer, 0, frames);
+            final var left = voice.left;
+            final var right = voice.right;
+            var level = 0f;
+            if (voice.stolen) {
+                final var step = 1f / frames;
+                for (var j = 0; j < rendered; ++j) {
+                    final var sample = mVoiceBuffer[j] * (1 - j * step);
+                    mMixBuffer[(offset + j) * CHANNELS] += sample * left;
+                    mMixBuffer[(offset + j) * CHANNELS + 1] += sample * right;
+                }
+            } else {
+                for (var j = 0; j < rendered; ++j) {
+                    final var sample = mVoiceBuffer[j];
+                    mMixBuffer[(offset + j) * CHANNELS] += sample * left;
+                    mMixBuffer[(offset + j) * CHANNELS + 1] += sample * right;
+                    level = Math.max(level, Math.abs(sample));
+                }
+            }
+            voice.level = level * Math.max(left, right);
+            if (voice.stolen || rendered < frames) {
+                voice.voice.release();
+                mVoices.remove(i);
+            } else {
+                ++i;
+            }
+        }
+
+        final var reverb = mReverb;
+        if (reverb != null) reverb.process(mMixBuffer, mBlockSize);
+
+        for (var i = 0; i < mMixBuffer.length; ++i) {
+            final var sample = Math.max(-1f, Math.min(1f, mMixBuffer[i]));
+            out.put(i, (short) (sample * Short.MAX_VALUE));
+        }
+        mFramePosition += mBlockSize;
+    }
+
+    private void start(ActiveVoice voice) {
+        if (voice.note != NO_NOTE && mStealPolicy == StealPolicy.SAME_NOTE) {
+            for (final var playing : mVoices) {
+                if (playing.note == voice.note) playing.stolen = true;
+            }
+        }
+        while (countSounding() >= mMaxVoices) steal();
+        voice.offset = (int) Math.max(0, voice.startFrame - mFramePosition);
+        mVoices.add(voice);
+        if (voice.listener != null) voice.listener.onVoiceStarted(mFramePosition + voice.offset);
+    }
+
+    private int countSounding() {
+        var count = 0;
+        for (final var voice : mVoices) if (!voice.stolen) ++count;
+        return count;
+    }
+
+    private void steal() {
+        ActiveVoice victim = null;
+        for (final var voice : mVoices) {
+            if (voice.stolen) continue;
+            if (victim == null) {
+                victim = voice;
+                if (mStealPolicy != StealPolicy.QUIETEST) break;
+            } else if (voice.level < victim.level) {
+                victim = voice;
+            }
+        }
+        if (victim != null) victim.stolen = true;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Persistent store of synthesized notes, one file per note. Notes are read back through memory
+ * mapped buffers, so their PCM is paged in by the OS straight from the file and never copied onto
+ * the Java heap.
+ * <p>
+ * Every file starts with a header holding the format version and all the parameters the note was
+ * synthesized with, a file whose header doesn't match the requested note is ignored. Files of any
+ * other version are deleted when the bank is opened, so {@link #VERSION} has to be bumped whenever
+ * the synthesis output changes. So are the temporary files of writes that never finished.
+ */
+public final class NoteBank {
+    static final int VERSION = 2;
+    private static final int MAGIC = 0x424e4359; // BNCY
+    private static final String PREFIX = "note-v" + VERSION + "-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 8 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int WRITE_CHUNK_FRAMES = 4096;
+
+    private final File mDirectory;
+
+    /**
+     * Opens the bank stored in the given directory, creating it if needed. Only one bank should be
+     * open on a directory at a time, as opening one deletes the files another may be writing.
+     */
+    public NoteBank(File directory) {
+        mDirectory = directory;
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+        final var files = directory.listFiles();
+        if (files == null) return;
+        for (final var file : files) {
+            final var name = file.getName();
+            //noinspection ResultOfMethodCallIgnored
+            if (!name.startsWith(PREFIX) || name.endsWith(TEMPORARY_SUFFIX)) file.delete();
+        }
+    }
+
+    /**
+     * Returns the stored note mapped into memory, or {@code null} if it isn't in the bank.
+     */
+    ShortBuffer load(NoteCache.Key key) {
+        final var file = getFile(key);
+        if (!file.exists()) return null;
+        try (final var channel = new FileInputStream(file).getChannel()) {
+            final var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) != HEADER_SIZE) return null;
+            // Frames are the only field not known from the key.
+            final var frames = header.getInt(HEADER_SIZE - Integer.BYTES);
+            if (frames < 0 || !Arrays.equals(header.array(), writeHeader(key, frames).array())
+                    || channel.size() != HEADER_SIZE + (long) frames * Short.BYTES) return null;
+            return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) frames * Short.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the note to the bank and returns it mapped into memory. The file is written under a
+     * temporary name first, so a crash midway never leaves a truncated note behind.
+     */
+    ShortBuffer store(NoteCache.Key key, ShortBuffer samples) throws IOException {
+        final var file = getFile(key);
+        final var temporary = new File(mDirectory, file.getName() + TEMPORARY_SUFFIX);
+        try (final var channel = new FileOutputStream(temporary).getChannel()) {
+            final var header = writeHeader(key, samples.capacity());
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+            final var chunk = ByteBuffer.allocate(WRITE_CHUNK_FRAMES * Short.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final var chunkSamples = chunk.asShortBuffer();
+            for (var i = 0; i < samples.capacity(); i += WRITE_CHUNK_FRAMES) {
+                final var count = Math.min(WRITE_CHUNK_FRAMES, samples.capacity() - i);
+                chunkSamples.clear();
+                for (var j = 0; j < count; ++j) chunkSamples.put(samples.get(i + j));
+                chunk.clear().limit(count * Short.BYTES);
+                while (chunk.hasRemaining()) channel.write(chunk);
+            }
+            channel.force(false);
+        }
+        if (!temporary.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temporary.delete();
+            throw new IOException("Can't write " + file);
+        }
+        final var stored = load(key);
+        if (stored == null) throw new IOException("Can't read back " + file);
+        return stored;
+    }
+
+    private File getFile(NoteCache.Key key) {
+        return new File(mDirectory, PREFIX + Long.toHexString(key.fingerprint()) + ".pcm");
+    }
+
+    private static ByteBuffer writeHeader(NoteCache.Key key, int frames) {
+        return ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putDouble(key.semitone)
+                .putDouble(key.duration)
+                .putDouble(key.synth.p)
+                .putDouble(key.synth.beta)
+                .putDouble(key.synth.s)
+                .putDouble(key.synth.c)
+                .putDouble(key.synth.l)
+                .putDouble(key.synth.silenceFloor)
+                .putInt(key.sampleRate)
+                .putInt(frames);
+    }
+}
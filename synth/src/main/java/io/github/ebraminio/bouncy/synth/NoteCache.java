@@ -0,0 +1,228 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded in-memory cache of synthesized notes. Entries are keyed by everything that affects the
+ * rendered PCM, evicted in least recently used order and kept under a fixed byte budget so that a
+ * long session can't grow the heap without bound.
+ * <p>
+ * With a {@link NoteBank} set, misses are looked up in the bank before being synthesized and newly
+ * synthesized notes are written to it in the background. Notes the bank turned out not to have
+ * are remembered, so a miss touches the filesystem only once per note. Once written, the heap copy of a note is
+ * replaced by the memory mapped one.
+ * <p>
+ * Notes synthesized while they play are released on the mixing thread, which must neither lock nor
+ * allocate. They are published to a fixed set of slots and cached by the next lookup instead, which
+ * also synthesizes the rest of the ones that were stolen before they ended.
+ */
+public final class NoteCache {
+    // More notes than this released between two lookups are dropped and synthesized again.
+    private static final int FINISHED_CAPACITY = 32;
+
+    private final long mMaxBytes;
+    private long mBytes = 0;
+    // Access ordered, so iteration starts from the least recently used entry.
+    private final LinkedHashMap<Key, ShortBuffer> mNotes = new LinkedHashMap<>(16, .75f, true);
+    private volatile NoteBank mNoteBank;
+    private volatile Executor mNoteBankExecutor;
+    // Keys the bank doesn't have, until they're synthesized and written to it.
+    private final HashSet<Key> mNotInBank = new HashSet<>();
+    private final AtomicReferenceArray<CachingVoice> mFinished =
+            new AtomicReferenceArray<>(FINISHED_CAPACITY);
+
+    /**
+     * @param maxBytes memory budget of the cached PCM data
+     */
+    public NoteCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache budget must be positive");
+        }
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Sets the on-disk bank backing this cache.
+     *
+     * @param noteBank the bank, or {@code null} to keep notes only in memory
+     * @param executor where notes are written to the bank
+     */
+    public void setNoteBank(NoteBank noteBank, Executor executor) {
+        mNoteBankExecutor = executor;
+        mNoteBank = noteBank;
+        synchronized (this) {
+            mNotInBank.clear();
+        }
+    }
+
+    /**
+     * Returns the cached note or synthesizes and caches it on a miss. Synthesis happens outside
+     * of the lock, so concurrent misses on different notes don't wait for each other.
+     */
+    public ShortBuffer get(GuitarString synth, double semitone, int sampleRate, double duration) {
+        final var key = new Key(synth, semitone, sampleRate, duration);
+        final var note = getCached(key);
+        if (note != null) return note;
+        final var samples =
+                synth.render(sampleRate, GuitarString.getStandardFrequency(semitone), duration);
+        put(key, samples);
+        return ShortBuffer.wrap(samples);
+    }
+
+    /**
+     * Returns a voice playing the note. On a miss the note starts playing right away, synthesized
+     * block by block as it plays, and is cached once it has been fully rendered, so the time to
+     * the first sample doesn't depend on the note duration. A note too long to fit in the budget
+     * is just played, it wouldn't be cached anyway.
+     */
+    public Voice getVoice(GuitarString synth, double semitone, int sampleRate, double duration) {
+        final var key = new Key(synth, semitone, sampleRate, duration);
+        final var note = getCached(key);
+        if (note != null) return new SampleVoice(note);
+        final var frequency = GuitarString.getStandardFrequency(semitone);
+        final var voice = synth.pluck(sampleRate, frequency, duration);
+        final var length = (long) (sampleRate * duration);
+        if (length * Short.BYTES > mMaxBytes) return voice;
+        return new CachingVoice(voice, (int) length, this, key);
+    }
+
+    private ShortBuffer getCached(Key key) {
+        cacheFinished();
+        synchronized (this) {
+            final var note = mNotes.get(key);
+            if (note != null) return note;
+            if (mNotInBank.contains(key)) return null;
+        }
+        final var noteBank = mNoteBank;
+        if (noteBank == null) return null;
+        final var note = noteBank.load(key);
+        if (note != null) {
+            putBuffer(key, note);
+        } else {
+            synchronized (this) {
+                mNotInBank.add(key);
+            }
+        }
+        return note;
+    }
+
+    /**
+     * Hands a note that has been released over to the cache without locking or allocating, safe
+     * to call from the mixing thread.
+     */
+    void offerFinished(CachingVoice voice) {
+        for (var i = 0; i < FINISHED_CAPACITY; ++i) {
+            if (mFinished.compareAndSet(i, null, voice)) return;
+        }
+    }
+
+    private void cacheFinished() {
+        for (var i = 0; i < FINISHED_CAPACITY; ++i) {
+            if (mFinished.get(i) == null) continue;
+            final var voice = mFinished.getAndSet(i, null);
+            if (voice == null) continue;
+            voice.finish();
+            put(voice.getKey(), voice.getSamples());
+        }
+    }
+
+    void put(Key key, short[] samples) {
+        final var note = ShortBuffer.wrap(samples);
+        putBuffer(key, note);
+        final var noteBank = mNoteBank;
+        final var executor = mNoteBankExecutor;
+        if (noteBank == null || executor == null) return;
+        executor.execute(() -> {
+            try {
+                final var stored = noteBank.store(key, note);
+                synchronized (this) {
+                    mNotInBank.remove(key);
+                    if (mNotes.get(key) == note) putBuffer(key, stored);
+                }
+            } catch (IOException e) {
+                // Keep the note in memory only, it'll be written again the next time.
+            }
+        });
+    }
+
+    private synchronized void putBuffer(Key key, ShortBuffer note) {
+        final long size = sizeOf(note);
+        if (size > mMaxBytes) return;
+        final var previous = mNotes.put(key, note);
+        if (previous != null) mBytes -= sizeOf(previous);
+        mBytes += size;
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        final Iterator<Map.Entry<Key, ShortBuffer>> iterator = mNotes.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            mBytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(ShortBuffer note) {
+        return (long) note.capacity() * Short.BYTES;
+    }
+
+    public synchronized void clear() {
+        mNotes.clear();
+        mBytes = 0;
+    }
+
+    public synchronized long size() {
+        return mBytes;
+    }
+
+    static final class Key {
+        final GuitarString synth;
+        final double semitone;
+        final int sampleRate;
+        final double duration;
+
+        Key(GuitarString synth, double semitone, int sampleRate, double duration) {
+            this.synth = synth;
+            this.semitone = semitone;
+            this.sampleRate = sampleRate;
+            this.duration = duration;
+        }
+
+        /**
+         * Returns a hash of the key that stays the same across runs, unlike {@link #hashCode()}
+         * it is wide enough to name files after.
+         */
+        long fingerprint() {
+            var result = 1125899906842597L;
+            for (final var value : new double[]{synth.p, synth.beta, synth.s, synth.c, synth.l,
+                    synth.silenceFloor, semitone, sampleRate, duration}) {
+                result = 31 * result + Double.doubleToLongBits(value);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return semitone == other.semitone && sampleRate == other.sampleRate
+                    && duration == other.duration && synth.equals(other.synth);
+        }
+
+        @Override
+        public int hashCode() {
+            var result = synth.hashCode();
+            result = 31 * result + Double.hashCode(semitone);
+            result = 31 * result + sampleRate;
+            result = 31 * result + Double.hashCode(duration);
+            return result;
+        }
+    }
+}
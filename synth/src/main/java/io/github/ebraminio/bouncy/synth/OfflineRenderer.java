@@ -0,0 +1,156 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Renders a {@link Session} to a 16-bit stereo WAV file through a {@link Mixer}, the same way it
+ * was played but as fast as the CPU allows. Blocks are written to the file as they are mixed, so
+ * memory use doesn't depend on the length of the session.
+ * <p>
+ * Notes recorded with a reverb send go through a {@link Reverb} with its default room, its send
+ * following the one each note was recorded with, so the render has the same tail as the output.
+ */
+public final class OfflineRenderer {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int WAV_HEADER_SIZE = 44;
+    // The sizes in the header are 32-bit, and plenty of readers take them as signed.
+    static final long MAX_DATA_SIZE = Integer.MAX_VALUE - (WAV_HEADER_SIZE - 8);
+
+    private final Instrument mInstrument;
+    private final int mSampleRate;
+    private final double mNoteDuration;
+    private final int mBlockSize;
+    private final ByteBuffer mBlock;
+    private int mMaxVoices = 16;
+    private Mixer.StealPolicy mStealPolicy = Mixer.StealPolicy.OLDEST;
+
+    /**
+     * @param instrument   plays the notes of the session
+     * @param noteDuration the longest a note plays for in seconds, as in the session
+     */
+    public OfflineRenderer(Instrument instrument, int sampleRate, double noteDuration) {
+        this(instrument, sampleRate, noteDuration, DEFAULT_BLOCK_SIZE);
+    }
+
+    public OfflineRenderer(Instrument instrument, int sampleRate, double noteDuration, int blockSize) {
+        mInstrument = instrument;
+        mSampleRate = sampleRate;
+        mNoteDuration = noteDuration;
+        mBlockSize = blockSize;
+        mBlock = ByteBuffer.allocate(blockSize * Mixer.CHANNELS * Short.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Sets the polyphony to render with, which should be the same the session was played with, see
+     * {@link Mixer#setMaxVoices(int)}.
+     */
+    public OfflineRenderer setMaxVoices(int maxVoices) {
+        mMaxVoices = maxVoices;
+        return this;
+    }
+
+    /**
+     * See {@link #setMaxVoices(int)} and {@link Mixer#setStealPolicy(Mixer.StealPolicy)}.
+     */
+    public OfflineRenderer setStealPolicy(Mixer.StealPolicy stealPolicy) {
+        mStealPolicy = stealPolicy;
+        return this;
+    }
+
+    /**
+     * Renders the session into the file, replacing it.
+     *
+     * @return the number of frames rendered
+     */
+    public long render(Session session, File file) throws IOException {
+        try (final var channel = new FileOutputStream(file).getChannel()) {
+            return render(session, channel);
+        }
+    }
+
+    /**
+     * Renders the session into the channel starting from its current position. The WAV header is
+     * written first with the data size left out, and filled in once the length is known.
+     *
+     * @return the number of frames rendered
+     * @throws IOException also when the session is too long for a WAV file, over 2GiB of data
+     */
+    public long render(Session session, FileChannel channel) throws IOException {
+        final var start = channel.position();
+        final var header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(header, 0);
+        writeFully(channel, header);
+
+        final var mixer = new Mixer(mBlockSize);
+        mixer.setMaxVoices(mMaxVoices);
+        mixer.setStealPolicy(mStealPolicy);
+        final var size = session.size();
+        // A dry session is spared the cost of running the reverb on every block.
+        for (var i = 0; i < size; ++i) {
+            if (session.getReverbSend(i) != 0) {
+                mixer.setReverb(new Reverb(mSampleRate, mBlockSize));
+                break;
+            }
+        }
+        final var reverb = mixer.getReverb();
+        final var samples = mBlock.asShortBuffer();
+        final var startTime = size > 0 ? session.getTime(0) : 0;
+        final var blockBytes = mBlock.capacity();
+        var next = 0;
+        while (next < size || !mixer.isIdle()) {
+            if (mixer.getFramePosition() * Mixer.CHANNELS * Short.BYTES + blockBytes > MAX_DATA_SIZE) {
+                throw new IOException("Session is too long for a WAV file");
+            }
+            final var blockEnd = mixer.getFramePosition() + mixer.getBlockSize();
+            while (next < size) {
+                final var frame = (session.getTime(next) - startTime) * mSampleRate / 1_000_000_000;
+                if (frame >= blockEnd) break;
+                if (reverb != null) reverb.setSend(session.getReverbSend(next));
+                final var semitone = session.getSemitone(next);
+                final var voice = mInstrument.pluck(mSampleRate,
+                        GuitarString.getStandardFrequency(semitone), mNoteDuration);
+                mixer.addVoice(voice, (int) Math.round(semitone), session.getGain(next),
+                        session.getPan(next), frame, null);
+                ++next;
+            }
+            mixer.mix(samples);
+            mBlock.clear();
+            writeFully(channel, mBlock);
+        }
+
+        final var frames = mixer.getFramePosition();
+        header.clear();
+        writeHeader(header, frames * Mixer.CHANNELS * Short.BYTES);
+        var position = start;
+        while (header.hasRemaining()) position += channel.write(header, position);
+        return frames;
+    }
+
+    private void writeHeader(ByteBuffer header, long dataSize) {
+        final var frameSize = Mixer.CHANNELS * Short.BYTES;
+        header.putInt(0x46464952) // RIFF
+                .putInt((int) (WAV_HEADER_SIZE - 8 + dataSize))
+                .putInt(0x45564157) // WAVE
+                .putInt(0x20746d66) // fmt
+                .putInt(16)
+                .putShort((short) 1) // PCM
+                .putShort((short) Mixer.CHANNELS)
+                .putInt(mSampleRate)
+                .putInt(mSampleRate * frameSize)
+                .putShort((short) frameSize)
+                .putShort((short) (Short.BYTES * 8))
+                .putInt(0x61746164) // data
+                .putInt((int) dataSize);
+        header.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Arrays;
+
+/**
+ * Freeverb style room reverb, eight parallel damped comb filters followed by four allpass
+ * filters for each channel, see <a href="https://ccrma.stanford.edu/~jos/pasp/Freeverb.html">
+ * Freeverb</a>. All the delay lines are allocated up front, and every block costs the same
+ * whether there's anything to reverberate or not.
+ * <p>
+ * The reverb is fed a mono sum of the block scaled by its send level, and its stereo output is
+ * added back. Lowering the send lets the tail ring out instead of cutting it. Once the tail has
+ * decayed under what 16-bit output can hold the delay lines are cleared, so nothing left of it
+ * comes back after a pause of the output.
+ */
+public final class Reverb {
+    // Delay lengths in samples at 44.1kHz, from Freeverb
+    private static final int TUNING_SAMPLE_RATE = 44100;
+    private static final int[] COMB_TUNING = {1116, 1188, 1277, 1356, 1422, 1491, 1557, 1617};
+    private static final int[] ALLPASS_TUNING = {556, 441, 341, 225};
+    private static final int STEREO_SPREAD = 23;
+    private static final float FIXED_GAIN = .015f;
+    private static final float WET_SCALE = 3;
+    private static final float ALLPASS_FEEDBACK = .5f;
+    // Half of the smallest step of 16-bit output
+    private static final float SILENCE_LEVEL = .5f / Short.MAX_VALUE;
+
+    private final int mBlockSize;
+    private final float[][] mCombs = new float[Mixer.CHANNELS * COMB_TUNING.length][];
+    private final int[] mCombIndices = new int[mCombs.length];
+    private final float[] mCombStores = new float[mCombs.length];
+    private final float[][] mAllpasses = new float[Mixer.CHANNELS * ALLPASS_TUNING.length][];
+    private final int[] mAllpassIndices = new int[mAllpasses.length];
+    private final float[] mInput;
+    private final float[] mWet;
+    // How long the output has to stay silent for the delay lines to have nothing left in them
+    private final int mTailLength;
+    private int mSilentFrames;
+
+    private volatile float mSend = 0;
+    private float mCurrentSend = 0;
+    private volatile float mFeedback = .84f;
+    private volatile float mDamping = .2f;
+
+    /**
+     * @param blockSize the most frames {@link #process(float[], int)} is called with
+     */
+    public Reverb(int sampleRate, int blockSize) {
+        mBlockSize = blockSize;
+        mInput = new float[blockSize];
+        mWet = new float[blockSize];
+        final var scale = (double) sampleRate / TUNING_SAMPLE_RATE;
+        for (var channel = 0; channel < Mixer.CHANNELS; ++channel) {
+            final var spread = channel * STEREO_SPREAD;
+            for (var i = 0; i < COMB_TUNING.length; ++i) {
+                mCombs[channel * COMB_TUNING.length + i] =
+                        new float[(int) ((COMB_TUNING[i] + spread) * scale)];
+            }
+            for (var i = 0; i < ALLPASS_TUNING.length; ++i) {
+                mAllpasses[channel * ALLPASS_TUNING.length + i] =
+                        new float[(int) ((ALLPASS_TUNING[i] + spread) * scale)];
+            }
+        }
+        // The longest path through the last channel, which has the longest delay lines
+        var tailLength = 0;
+        for (var i = 0; i < COMB_TUNING.length; ++i) {
+            tailLength = Math.max(tailLength, mCombs[mCombs.length - 1 - i].length);
+        }
+        for (var i = 0; i < ALLPASS_TUNING.length; ++i) {
+            tailLength += mAllpasses[mAllpasses.length - 1 - i].length;
+        }
+        mTailLength = tailLength;
+        mSilentFrames = tailLength;
+    }
+
+    /**
+     * Sets how much of the signal is sent to the reverb, 0 for none, which lets the tail ring out.
+     * Changes are smoothed over a block. Safe to call from any thread.
+     */
+    public void setSend(float send) {
+        mSend = send;
+    }
+
+    public float getSend() {
+        return mSend;
+    }
+
+    /**
+     * Sets the size of the room, from 0 to 1, i.e. how long the tail is. Safe to call from any
+     * thread.
+     */
+    public void setRoomSize(float roomSize) {
+        mFeedback = roomSize * .28f + .7f;
+    }
+
+    /**
+     * Sets how quickly high frequencies die out in the tail, from 0 to 1. Safe to call from any
+     * thread.
+     */
+    public void setDamping(float damping) {
+        mDamping = damping * .4f;
+    }
+
+    /**
+     * Returns whether the tail of what was fed to the reverb is still audible. Meant to be called
+     * from the thread processing the blocks.
+     */
+    public boolean isRinging() {
+        return mSilentFrames < mTailLength;
+    }
+
+    /**
+     * Adds the reverb of a block of interleaved stereo samples to it, in place.
+     */
+    public void process(float[] buffer, int frames) {
+        if (frames > mBlockSize) {
+            throw new IllegalArgumentException("Block is larger than " + mBlockSize + " frames");
+        }
+        final var send = mSend;
+        final var step = (send - mCurrentSend) / frames;
+        var gain = mCurrentSend;
+        var fed = false;
+        for (var i = 0; i < frames; ++i) {
+            gain += step;
+            final var input = (buffer[i * Mixer.CHANNELS] + buffer[i * Mixer.CHANNELS + 1]) * FIXED_GAIN * gain;
+            mInput[i] = input;
+            fed |= input != 0;
+        }
+        mCurrentSend = send;
+
+        final var feedback = mFeedback;
+        final var damping = mDamping;
+        var peak = 0f;
+        for (var channel = 0; channel < Mixer.CHANNELS; ++channel) {
+            Arrays.fill(mWet, 0, frames, 0);
+            for (var i = 0; i < COMB_TUNING.length; ++i) {
+                comb(channel * COMB_TUNING.length + i, frames, feedback, damping);
+            }
+            for (var i = 0; i < ALLPASS_TUNING.length; ++i) {
+                allpass(channel * ALLPASS_TUNING.length + i, frames);
+            }
+            for (var i = 0; i < frames; ++i) {
+                final var wet = mWet[i] * WET_SCALE;
+                buffer[i * Mixer.CHANNELS + channel] += wet;
+                peak = Math.max(peak, Math.abs(wet));
+            }
+        }
+        trackTail(fed || peak >= SILENCE_LEVEL, frames);
+    }
+
+    private void trackTail(boolean audible, int frames) {
+        if (audible) {
+            mSilentFrames = 0;
+            return;
+        }
+        if (!isRinging()) return;
+        mSilentFrames += frames;
+        if (isRinging()) return;
+        // Whatever is left is too quiet to hear now, but would be once the output is paused and
+        // picks up with the next note, or if the room is made larger.
+        for (final var line : mCombs) Arrays.fill(line, 0);
+        for (final var line : mAllpasses) Arrays.fill(line, 0);
+        Arrays.fill(mCombStores, 0);
+    }
+
+    private void comb(int comb, int frames, float feedback, float damping) {
+        final var line = mCombs[comb];
+        var index = mCombIndices[comb];
+        var store = mCombStores[comb];
+        for (var i = 0; i < frames; ++i) {
+            final var output = line[index];
+            store = output * (1 - damping) + store * damping;
+            line[index] = mInput[i] + store * feedback;
+            if (++index == line.length) index = 0;
+            mWet[i] += output;
+        }
+        mCombIndices[comb] = index;
+        mCombStores[comb] = store;
+    }
+
+    private void allpass(int allpass, int frames) {
+        final var line = mAllpasses[allpass];
+        var index = mAllpassIndices[allpass];
+        for (var i = 0; i < frames; ++i) {
+            final var delayed = line[index];
+            final var input = mWet[i];
+            line[index] = input + delayed * ALLPASS_FEEDBACK;
+            if (++index == line.length) index = 0;
+            mWet[i] = delayed - input;
+        }
+        mAllpassIndices[allpass] = index;
+    }
+}
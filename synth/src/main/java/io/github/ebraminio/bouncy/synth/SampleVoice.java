@@ -0,0 +1,32 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Plays an already synthesized 16-bit note, e.g. one coming from {@link NoteCache}. The note is
+ * only read through absolute gets, so the same buffer, including a memory mapped one, can be
+ * shared by any number of voices.
+ */
+public final class SampleVoice implements Voice {
+    private static final float SCALE = 1f / Short.MAX_VALUE;
+    private final ShortBuffer mSamples;
+    private final int mLength;
+    private int mPosition = 0;
+
+    public SampleVoice(short[] samples) {
+        this(ShortBuffer.wrap(samples));
+    }
+
+    public SampleVoice(ShortBuffer samples) {
+        mSamples = samples;
+        mLength = samples.capacity();
+    }
+
+    @Override
+    public int render(float[] buffer, int offset, int frames) {
+        final var count = Math.min(frames, mLength - mPosition);
+        for (var i = 0; i < count; ++i) buffer[offset + i] = mSamples.get(mPosition + i) * SCALE;
+        mPosition += count;
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Arrays;
+
+/**
+ * The notes played during a session, in the order they were played, to be rendered again with
+ * {@link OfflineRenderer}. A note takes a few bytes however long it sounds, so a session can be
+ * recorded for as long as it lasts. Safe to use from any thread.
+ */
+public final class Session {
+    private long[] mTimes = new long[64];
+    private double[] mSemitones = new double[64];
+    private float[] mGains = new float[64];
+    private float[] mPans = new float[64];
+    private float[] mReverbSends = new float[64];
+    private int mSize = 0;
+
+    /**
+     * Records a note played without reverb.
+     *
+     * @param time     time the note was heard in nanoseconds, in any base as long as it's the same
+     *                 for the whole session
+     * @param semitone pitch of the note, see {@link GuitarString#getStandardFrequency(double)}
+     * @param gain     linear gain of the note
+     * @param pan      position of the note in the stereo field, from -1 for left to 1 for right
+     */
+    public void record(long time, double semitone, float gain, float pan) {
+        record(time, semitone, gain, pan, 0);
+    }
+
+    /**
+     * Records a note along with the reverb send of the output it was played to, see
+     * {@link Reverb#setSend(float)}.
+     */
+    public synchronized void record(long time, double semitone, float gain, float pan,
+                                    float reverbSend) {
+        if (mSize == mTimes.length) {
+            final var capacity = mSize * 2;
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mSemitones = Arrays.copyOf(mSemitones, capacity);
+            mGains = Arrays.copyOf(mGains, capacity);
+            mPans = Arrays.copyOf(mPans, capacity);
+            mReverbSends = Arrays.copyOf(mReverbSends, capacity);
+        }
+        mTimes[mSize] = time;
+        mSemitones[mSize] = semitone;
+        mGains[mSize] = gain;
+        mPans[mSize] = pan;
+        mReverbSends[mSize] = reverbSend;
+        ++mSize;
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns a copy of the notes recorded so far, e.g. to render them while recording goes on.
+     */
+    public synchronized Session copy() {
+        final var copy = new Session();
+        copy.mTimes = Arrays.copyOf(mTimes, Math.max(1, mSize));
+        copy.mSemitones = Arrays.copyOf(mSemitones, Math.max(1, mSize));
+        copy.mGains = Arrays.copyOf(mGains, Math.max(1, mSize));
+        copy.mPans = Arrays.copyOf(mPans, Math.max(1, mSize));
+        copy.mReverbSends = Arrays.copyOf(mReverbSends, Math.max(1, mSize));
+        copy.mSize = mSize;
+        return copy;
+    }
+
+    public synchronized void clear() {
+        mSize = 0;
+    }
+
+    synchronized long getTime(int index) {
+        return mTimes[index];
+    }
+
+    synchronized double getSemitone(int index) {
+        return mSemitones[index];
+    }
+
+    synchronized float getGain(int index) {
+        return mGains[index];
+    }
+
+    synchronized float getPan(int index) {
+        return mPans[index];
+    }
+
+    synchronized float getReverbSend(int index) {
+        return mReverbSends[index];
+    }
+}
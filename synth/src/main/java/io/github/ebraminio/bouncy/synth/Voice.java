@@ -0,0 +1,22 @@
+package io.github.ebraminio.bouncy.synth;
+
+/**
+ * A source of mono samples that can be mixed by {@link Mixer}.
+ */
+public interface Voice {
+    /**
+     * Renders the next samples of the voice.
+     *
+     * @param buffer where the samples, in the [-1, 1] range, are written to
+     * @param offset index of the first sample to write
+     * @param frames number of samples requested
+     * @return number of samples written, anything less than {@code frames} ends the voice
+     */
+    int render(float[] buffer, int offset, int frames);
+
+    /**
+     * Called once the voice has ended or was stolen, it won't be rendered again after this.
+     */
+    default void release() {
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.ebraminio.bouncy.synth;
+
+/**
+ * A cheap alternative to {@link GuitarString}: a single cycle waveform played back at the note's
+ * pitch and shaped by an ADSR envelope. One small table serves every note, so there's nothing
+ * per note to synthesize up front or to cache.
+ */
+public final class Wavetable implements Instrument {
+    static final int TABLE_BITS = 8;
+    static final int TABLE_SIZE = 1 << TABLE_BITS;
+
+    /**
+     * A plucked sound, a fast attack followed by a decay to silence over a second and a half.
+     */
+    public static final Wavetable DEFAULT = new Wavetable(
+            new float[]{1, .5f, .33f, .25f, .12f, .08f, .04f, .02f}, .002, 1.5, 0, .05);
+
+    // One cycle plus a guard sample so interpolation never needs to wrap
+    final float[] table = new float[TABLE_SIZE + 1];
+    final double attack;
+    final double decay;
+    final float sustain;
+    final double release;
+
+    /**
+     * @param harmonics amplitudes of the harmonics of the waveform, starting with the fundamental
+     * @param attack    seconds to reach full level
+     * @param decay     seconds to decay by 60dB towards the sustain level
+     * @param sustain   level held after the decay, 0 for sounds that die out on their own
+     * @param release   seconds to decay by 60dB once the note is over
+     */
+    public Wavetable(float[] harmonics, double attack, double decay, float sustain, double release) {
+        this.attack = attack;
+        this.decay = decay;
+        this.sustain = sustain;
+        this.release = release;
+        var max = 0f;
+        for (var i = 0; i < TABLE_SIZE; ++i) {
+            var sample = 0.0;
+            for (var harmonic = 0; harmonic < harmonics.length; ++harmonic) {
+                sample += harmonics[harmonic] * Math.sin(2 * Math.PI * (harmonic + 1) * i / TABLE_SIZE);
+            }
+            table[i] = (float) sample;
+            max = Math.max(max, Math.abs(table[i]));
+        }
+        for (var i = 0; i < TABLE_SIZE; ++i) table[i] /= max;
+        table[TABLE_SIZE] = table[0];
+    }
+
+    @Override
+    public WavetableVoice pluck(int sampleRate, double frequency, double duration) {
+        return new WavetableVoice(this, sampleRate, frequency, duration);
+    }
+}
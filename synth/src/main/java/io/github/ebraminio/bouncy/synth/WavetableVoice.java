@@ -0,0 +1,99 @@
+package io.github.ebraminio.bouncy.synth;
+
+/**
+ * Plays a {@link Wavetable} with a linear interpolating fixed point oscillator. The envelope is
+ * rendered in runs between its stage changes, so the inner loops have no branches.
+ */
+public final class WavetableVoice implements Voice {
+    // Level the envelope has to fall to for the voice to end, -60dB
+    private static final float SILENCE = .001f;
+    private static final int FRACTION_BITS = 32 - Wavetable.TABLE_BITS;
+    private static final float FRACTION_SCALE = 1f / (1 << FRACTION_BITS);
+    private static final float GAIN = .75f;
+
+    private enum Stage {ATTACK, DECAY, RELEASE, DONE}
+
+    private final float[] mTable;
+    private final int mPhaseIncrement;
+    private int mPhase = 0;
+
+    private final int mAttackFrames;
+    private final float mAttackStep;
+    private final float mDecayMultiplier;
+    private final float mSustain;
+    private final float mReleaseMultiplier;
+    private final int mReleaseFrame;
+    private Stage mStage = Stage.ATTACK;
+    private float mLevel = 0;
+    private int mFrame = 0;
+
+    WavetableVoice(Wavetable wavetable, int sampleRate, double frequency, double duration) {
+        mTable = wavetable.table;
+        // The phase wraps around on the int overflow, a full cycle is 2^32.
+        mPhaseIncrement = (int) (long) (frequency / sampleRate * 4294967296.0);
+        mAttackFrames = Math.max(1, (int) (wavetable.attack * sampleRate));
+        mAttackStep = 1f / mAttackFrames;
+        mDecayMultiplier = multiplier(wavetable.decay, sampleRate);
+        mSustain = wavetable.sustain;
+        mReleaseMultiplier = multiplier(wavetable.release, sampleRate);
+        final var releaseFrames = (int) (wavetable.release * sampleRate);
+        mReleaseFrame = Math.max(0, (int) (duration * sampleRate) - releaseFrames);
+    }
+
+    // Per sample multiplier that decays by 60dB over the given time
+    private static float multiplier(double seconds, int sampleRate) {
+        return (float) Math.pow(SILENCE, 1 / Math.max(1, seconds * sampleRate));
+    }
+
+    @Override
+    public int render(float[] buffer, int offset, int frames) {
+        var i = 0;
+        while (i < frames && mStage != Stage.DONE) {
+            if (mStage != Stage.RELEASE && mFrame >= mReleaseFrame) mStage = Stage.RELEASE;
+            var run = frames - i;
+            if (mStage != Stage.RELEASE) run = Math.min(run, mReleaseFrame - mFrame);
+            switch (mStage) {
+                case ATTACK -> {
+                    run = Math.min(run, mAttackFrames - mFrame);
+                    var level = mLevel;
+                    for (var j = 0; j < run; ++j) {
+                        level += mAttackStep;
+                        buffer[offset + i + j] = oscillate() * level;
+                    }
+                    mLevel = level;
+                    if (mFrame + run >= mAttackFrames) mStage = Stage.DECAY;
+                }
+                case DECAY -> {
+                    final var sustain = mSustain;
+                    var level = mLevel;
+                    for (var j = 0; j < run; ++j) {
+                        level = sustain + (level - sustain) * mDecayMultiplier;
+                        buffer[offset + i + j] = oscillate() * level;
+                    }
+                    mLevel = level;
+                    if (level < SILENCE) mStage = Stage.DONE;
+                }
+                case RELEASE -> {
+                    var level = mLevel;
+                    for (var j = 0; j < run; ++j) {
+                        level *= mReleaseMultiplier;
+                        buffer[offset + i + j] = oscillate() * level;
+                    }
+                    mLevel = level;
+                    if (level < SILENCE) mStage = Stage.DONE;
+                }
+            }
+            i += run;
+            mFrame += run;
+        }
+        return i;
+    }
+
+    private float oscillate() {
+        final var index = mPhase >>> FRACTION_BITS;
+        final var fraction = (mPhase & ((1 << FRACTION_BITS) - 1)) * FRACTION_SCALE;
+        final var a = mTable[index];
+        mPhase += mPhaseIncrement;
+        return GAIN * (a + (mTable[index + 1] - a) * fraction);
+    }
+}
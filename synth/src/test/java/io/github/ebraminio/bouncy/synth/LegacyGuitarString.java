@@ -0,0 +1,75 @@
+package io.github.ebraminio.bouncy.synth;
+
+import java.util.Random;
+
+/**
+ * The original array based synthesizer that {@link GuitarStringVoice} replaced, kept as the
+ * baseline to compare against.
+ */
+final class LegacyGuitarString {
+    private LegacyGuitarString() {
+    }
+
+    // Based on https://habr.com/ru/post/514844/ and https://timiskhakov.github.io/posts/programming-guitar-music
+    static short[] guitarString(int sampleRate, double frequency, double duration, Random rand) {
+        final var p = .9;
+        final var beta = .1;
+        final var s = .1;
+        final var c = .1;
+        final var l = .1;
+        final var n = (int) (sampleRate / frequency);
+
+        // Pick-direction lowpass filter
+        final var random = new double[n];
+        var lastOut = (1 - p) * rand.nextDouble() * 2 - 1;
+        random[0] = lastOut;
+        for (var i = 1; i < n; ++i) {
+            lastOut = (1 - p) * (rand.nextDouble() * 2 - 1) + p * lastOut;
+            random[i] = lastOut;
+        }
+
+        // Pick-position comb filter
+        var pick = (int) (beta * n + .5);
+        if (pick == 0) pick = n;
+        var noise = new double[random.length];
+        for (var i = 0; i < noise.length; ++i) {
+            noise[i] = random[i] - (i < pick ? .0 : random[i - pick]);
+        }
+
+        final var samples = new double[(int) (sampleRate * duration)];
+        System.arraycopy(noise, 0, samples, 0, n);
+
+        // First-order string-tuning allpass filter
+        for (var i = n; i < samples.length; ++i) {
+            // delay line
+            final var delayLine = samples[i - n];
+            final var delayLineM1 = (i - 1 - n) > 0 ? samples[i - 1 - n] : 0;
+            final var delayLineM2 = (i - 2 - n) > 0 ? samples[i - 2 - n] : 0;
+            // String-dampling filter.
+            final var stringDamplingFilter = .996 * ((1 - s) * delayLine + s * delayLineM1);
+            final var stringDamplingFilterM1 = .996 * ((1 - s) * delayLineM1 + s * delayLineM2);
+
+            samples[i] = c * (stringDamplingFilter - samples[i - 1]) + stringDamplingFilterM1;
+        }
+
+        // Dynamic-level lowpass filter. L ∈ (0, 1/3)
+        final var wTilde = Math.PI * frequency / sampleRate;
+        final var buffer = new double[samples.length];
+        buffer[0] = wTilde / (1 + wTilde) * samples[0];
+        for (int i = 1; i < samples.length; ++i) {
+            buffer[i] = wTilde / (1 + wTilde) * (samples[i] + samples[i - 1]) + (1 - wTilde) / (1 + wTilde) * buffer[i - 1];
+        }
+        for (int i = 0; i < samples.length; ++i) {
+            samples[i] = ((Math.pow(l, 4 / 3.0)) * samples[i]) + (1 - l) * buffer[i];
+        }
+
+        var max = .0;
+        for (final var sample : samples) max = Math.max(max, Math.abs(sample));
+
+        final var result = new short[samples.length];
+        for (var i = 0; i < result.length; ++i) {
+            result[i] = (short) (samples[i] / max * Short.MAX_VALUE);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.ebraminio.bouncy.synth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class MixerTest {
+    private static final int BLOCK_SIZE = 64;
+
+    // Plays a constant level for a number of frames.
+    private static final class ConstantVoice implements Voice {
+        final float level;
+        int remaining;
+        boolean released = false;
+
+        ConstantVoice(float level, int frames) {
+            this.level = level;
+            remaining = frames;
+        }
+
+        @Override
+        public int render(float[] buffer, int offset, int frames) {
+            final var count = Math.min(frames, remaining);
+            for (var i = 0; i < count; ++i) buffer[offset + i] = level;
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+    }
+
+    private static short[] mix(Mixer mixer) {
+        final var block = new short[BLOCK_SIZE * Mixer.CHANNELS];
+        mixer.mix(block);
+        return block;
+    }
+
+    @Test
+    public void mixesVoicesWithGainAndPan() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mixer.addVoice(new ConstantVoice(.5f, BLOCK_SIZE), Mixer.NO_NOTE, 1, -1);
+        mixer.addVoice(new ConstantVoice(.25f, BLOCK_SIZE), Mixer.NO_NOTE, .5f, 1);
+        final var block = mix(mixer);
+        assertEquals((short) (.5f * Short.MAX_VALUE), block[0]);
+        assertEquals((short) (.125f * Short.MAX_VALUE), block[1], 1);
+    }
+
+    @Test
+    public void endedVoicesAreReleased() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        final var voice = new ConstantVoice(.5f, BLOCK_SIZE + 10);
+        mixer.addVoice(voice);
+        assertFalse(mixer.isIdle());
+        mix(mixer);
+        assertFalse(voice.released);
+        final var block = mix(mixer);
+        assertTrue(voice.released);
+        assertTrue(mixer.isIdle());
+        assertEquals(0, block[10 * Mixer.CHANNELS]);
+        assertEquals(2L * BLOCK_SIZE, mixer.getFramePosition());
+    }
+
+    @Test
+    public void reverbTailKeepsMixerBusy() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        final var reverb = new Reverb(8000, BLOCK_SIZE);
+        reverb.setSend(1);
+        mixer.setReverb(reverb);
+        assertTrue(mixer.isIdle());
+        mixer.addVoice(new ConstantVoice(.5f, BLOCK_SIZE));
+        mix(mixer);
+        var blocks = 0;
+        var audible = false;
+        while (!mixer.isIdle()) {
+            for (final var sample : mix(mixer)) audible |= sample != 0;
+            assertTrue(++blocks < 8000);
+        }
+        assertTrue(audible);
+        assertFalse(reverb.isRinging());
+        // Nothing of the old tail is left for the next note.
+        for (var i = 0; i < 100; ++i) {
+            for (final var sample : mix(mixer)) assertEquals(0, sample);
+        }
+    }
+
+    @Test
+    public void stealsOldestVoice() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mixer.setMaxVoices(2);
+        final var voices = new ArrayList<ConstantVoice>();
+        for (var i = 0; i < 3; ++i) {
+            voices.add(new ConstantVoice(.1f, 10 * BLOCK_SIZE));
+            mixer.addVoice(voices.get(i));
+            mix(mixer);
+        }
+        assertTrue(voices.get(0).released);
+        assertFalse(voices.get(1).released);
+        assertFalse(voices.get(2).released);
+    }
+
+    @Test
+    public void stealsQuietestVoice() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mixer.setMaxVoices(2);
+        mixer.setStealPolicy(Mixer.StealPolicy.QUIETEST);
+        final var loud = new ConstantVoice(.5f, 10 * BLOCK_SIZE);
+        final var quiet = new ConstantVoice(.1f, 10 * BLOCK_SIZE);
+        final var next = new ConstantVoice(.5f, 10 * BLOCK_SIZE);
+        mixer.addVoice(loud);
+        mixer.addVoice(quiet);
+        mix(mixer);
+        mixer.addVoice(next);
+        mix(mixer);
+        assertFalse(loud.released);
+        assertTrue(quiet.released);
+        assertFalse(next.released);
+    }
+
+    @Test
+    public void stolenVoiceFadesOut() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mixer.setMaxVoices(1);
+        mixer.addVoice(new ConstantVoice(.5f, 10 * BLOCK_SIZE), Mixer.NO_NOTE, 1, -1);
+        mix(mixer);
+        mixer.addVoice(new ConstantVoice(.5f, 10 * BLOCK_SIZE), Mixer.NO_NOTE, 1, 1);
+        final var block = mix(mixer);
+        for (var i = 1; i < BLOCK_SIZE; ++i) {
+            assertTrue(block[i * Mixer.CHANNELS] < block[(i - 1) * Mixer.CHANNELS]);
+        }
+        assertEquals(0, block[(BLOCK_SIZE - 1) * Mixer.CHANNELS], Short.MAX_VALUE / BLOCK_SIZE);
+    }
+
+    @Test
+    public void sameNoteChokesPlayingNote() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mixer.setStealPolicy(Mixer.StealPolicy.SAME_NOTE);
+        final var first = new ConstantVoice(.1f, 10 * BLOCK_SIZE);
+        final var other = new ConstantVoice(.1f, 10 * BLOCK_SIZE);
+        mixer.addVoice(first, 60, 1, 0);
+        mixer.addVoice(other, 62, 1, 0);
+        mix(mixer);
+        mixer.addVoice(new ConstantVoice(.1f, 10 * BLOCK_SIZE), 60, 1, 0);
+        mix(mixer);
+        assertTrue(first.released);
+        assertFalse(other.released);
+    }
+
+    @Test
+    public void startsScheduledVoiceAtItsFrame() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        final var started = new long[]{-1};
+        final var startFrame = BLOCK_SIZE + 20;
+        mixer.addVoice(new ConstantVoice(.5f, BLOCK_SIZE), Mixer.NO_NOTE, 1, 0, startFrame,
+                frame -> started[0] = frame);
+        final var silent = mix(mixer);
+        for (final var sample : silent) assertEquals(0, sample);
+        assertEquals(-1, started[0]);
+        assertFalse(mixer.isIdle());
+
+        final var block = mix(mixer);
+        assertEquals(startFrame, started[0]);
+        assertEquals(0, block[19 * Mixer.CHANNELS]);
+        assertTrue(block[20 * Mixer.CHANNELS] > 0);
+    }
+
+    @Test
+    public void lateScheduledVoiceStartsWithNextBlock() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        mix(mixer);
+        final var started = new long[]{-1};
+        mixer.addVoice(new ConstantVoice(.5f, BLOCK_SIZE), Mixer.NO_NOTE, 1, 0, 10,
+                frame -> started[0] = frame);
+        final var block = mix(mixer);
+        assertEquals(BLOCK_SIZE, started[0]);
+        assertTrue(block[0] > 0);
+    }
+
+    @Test
+    public void canceledVoiceNeverStarts() {
+        final var mixer = new Mixer(BLOCK_SIZE);
+        final var voice = new ConstantVoice(.5f, BLOCK_SIZE);
+        mixer.addVoice(voice, Mixer.NO_NOTE, 1, 0, 2 * BLOCK_SIZE, null);
+        mix(mixer);
+        mixer.cancel(voice);
+        for (var i = 0; i < 3; ++i) {
+            for (final var sample : mix(mixer)) assertEquals(0, sample);
+        }
+        assertTrue(voice.released);
+        assertTrue(mixer.isIdle());
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.ebraminio.bouncy.synth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+
+public class NoteBankTest {
+    private static final int SAMPLE_RATE = 8000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static NoteCache.Key key(double semitone) {
+        return new NoteCache.Key(GuitarString.DEFAULT, semitone, SAMPLE_RATE, .5);
+    }
+
+    private static short[] render(double semitone) {
+        return GuitarString.DEFAULT.render(SAMPLE_RATE, GuitarString.getStandardFrequency(semitone), .5);
+    }
+
+    @Test
+    public void storedNoteLoadsBack() throws IOException {
+        final var directory = folder.newFolder();
+        final var samples = render(69);
+        final var stored = new NoteBank(directory).store(key(69), ShortBuffer.wrap(samples));
+        assertEquals(ShortBuffer.wrap(samples), stored);
+
+        // Also from a bank opened again, as on the next launch.
+        final var loaded = new NoteBank(directory).load(key(69));
+        assertNotNull(loaded);
+        assertEquals(ShortBuffer.wrap(samples), loaded);
+        assertNull(new NoteBank(directory).load(key(70)));
+    }
+
+    @Test
+    public void truncatedNoteIsIgnored() throws IOException {
+        final var directory = folder.newFolder();
+        final var bank = new NoteBank(directory);
+        bank.store(key(69), ShortBuffer.wrap(render(69)));
+        final var files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        try (final var file = new RandomAccessFile(files[0], "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        assertNull(bank.load(key(69)));
+    }
+
+    @Test
+    public void otherVersionsAreDeleted() throws IOException {
+        final var directory = folder.newFolder();
+        final var old = new File(directory, "note-v1-1234.pcm");
+        assertTrue(old.createNewFile());
+        new NoteBank(directory);
+        assertFalse(old.exists());
+    }
+
+    @Test
+    public void unfinishedWritesAreDeleted() throws IOException {
+        final var directory = folder.newFolder();
+        new NoteBank(directory).store(key(69), ShortBuffer.wrap(render(69)));
+        final var stored = directory.listFiles();
+        assertNotNull(stored);
+        final var temporary = new File(directory, stored[0].getName() + ".tmp");
+        assertTrue(temporary.createNewFile());
+        new NoteBank(directory);
+        assertFalse(temporary.exists());
+        assertTrue(stored[0].exists());
+    }
+
+    @Test
+    public void missingNoteIsLookedUpInBankOnce() throws IOException {
+        final var directory = folder.newFolder();
+        final var cache = new NoteCache(1 << 20);
+        cache.setNoteBank(new NoteBank(directory), Runnable::run);
+        assertTrue(cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5) instanceof CachingVoice);
+
+        // Written behind the cache's back, which it doesn't look for again.
+        new NoteBank(directory).store(key(69), ShortBuffer.wrap(render(69)));
+        assertTrue(cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5) instanceof CachingVoice);
+
+        // A fresh cache finds it in the bank.
+        final var other = new NoteCache(1 << 20);
+        other.setNoteBank(new NoteBank(directory), Runnable::run);
+        assertTrue(other.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5) instanceof SampleVoice);
+    }
+}
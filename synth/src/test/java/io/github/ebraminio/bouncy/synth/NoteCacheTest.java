@@ -0,0 +1,69 @@
+package io.github.ebraminio.bouncy.synth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NoteCacheTest {
+    private static final int SAMPLE_RATE = 8000;
+
+    @Test
+    public void cacheStaysWithinBudget() {
+        final var noteBytes = (long) GuitarString.DEFAULT.render(SAMPLE_RATE,
+                GuitarString.getStandardFrequency(69), .5).length * Short.BYTES;
+        final var cache = new NoteCache(2 * noteBytes + noteBytes / 2);
+        for (var semitone = 60; semitone < 70; ++semitone) {
+            cache.get(GuitarString.DEFAULT, semitone, SAMPLE_RATE, .5);
+            assertTrue(cache.size() <= 2 * noteBytes + noteBytes / 2);
+        }
+    }
+
+    @Test
+    public void finishedNoteIsCachedByNextLookup() {
+        final var cache = new NoteCache(1 << 20);
+        final var voice = cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5);
+        assertTrue(voice instanceof CachingVoice);
+        final var buffer = new float[SAMPLE_RATE];
+        final var rendered = voice.render(buffer, 0, buffer.length);
+        assertTrue(rendered < buffer.length);
+        voice.release();
+        // Handed over from the mixing thread, but not cached there.
+        assertEquals(0, cache.size());
+
+        final var cached = cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5);
+        assertTrue(cached instanceof SampleVoice);
+        assertEquals((long) rendered * Short.BYTES, cache.size());
+    }
+
+    @Test
+    public void retriggeredNoteIsStillCached() {
+        final var cache = new NoteCache(1 << 20);
+        final var mixer = new Mixer(64);
+        mixer.setStealPolicy(Mixer.StealPolicy.SAME_NOTE);
+        final var block = new short[64 * Mixer.CHANNELS];
+        // Each hit chokes the previous one long before it has played to the end.
+        for (var i = 0; i < 3; ++i) {
+            mixer.addVoice(cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5), 69, 1, 0);
+            mixer.mix(block);
+        }
+        final var cached = cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, .5);
+        assertTrue(cached instanceof SampleVoice);
+
+        // The whole note, not just the two blocks heard of the first hit.
+        final var rendered = cached.render(new float[SAMPLE_RATE], 0, SAMPLE_RATE);
+        assertTrue(rendered > SAMPLE_RATE / 10);
+        assertEquals((long) rendered * Short.BYTES, cache.size());
+    }
+
+    @Test
+    public void noteOverBudgetIsNotCached() {
+        final var cache = new NoteCache(SAMPLE_RATE / 2 * Short.BYTES);
+        final var voice = cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, 1);
+        assertFalse(voice instanceof CachingVoice);
+        voice.render(new float[SAMPLE_RATE], 0, SAMPLE_RATE);
+        cache.getVoice(GuitarString.DEFAULT, 69, SAMPLE_RATE, 1);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.ebraminio.bouncy.synth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+public class OfflineRendererTest {
+    private static final int SAMPLE_RATE = 8000;
+    private static final int BLOCK_SIZE = 64;
+    private static final int NOTE_FRAMES = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Every note is a short burst at a constant level.
+    private static final Instrument BURST = (sampleRate, frequency, duration) -> new Voice() {
+        int mRemaining = NOTE_FRAMES;
+
+        @Override
+        public int render(float[] buffer, int offset, int frames) {
+            final var count = Math.min(frames, mRemaining);
+            for (var i = 0; i < count; ++i) buffer[offset + i] = .5f;
+            mRemaining -= count;
+            return count;
+        }
+    };
+
+    private ByteBuffer render(Session session) throws IOException {
+        final var file = folder.newFile();
+        final var frames = new OfflineRenderer(BURST, SAMPLE_RATE, 1, BLOCK_SIZE).render(session, file);
+        final var wav = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(44 + frames * Mixer.CHANNELS * Short.BYTES, wav.capacity());
+        return wav;
+    }
+
+    private static short getLeft(ByteBuffer wav, int frame) {
+        return wav.getShort(44 + frame * Mixer.CHANNELS * Short.BYTES);
+    }
+
+    @Test
+    public void writesWavHeader() throws IOException {
+        final var session = new Session();
+        session.record(0, 69, 1, 0);
+        final var wav = render(session);
+        assertEquals(0x46464952, wav.getInt(0)); // RIFF
+        assertEquals(wav.capacity() - 8, wav.getInt(4));
+        assertEquals(0x45564157, wav.getInt(8)); // WAVE
+        assertEquals(1, wav.getShort(20)); // PCM
+        assertEquals(Mixer.CHANNELS, wav.getShort(22));
+        assertEquals(SAMPLE_RATE, wav.getInt(24));
+        assertEquals(16, wav.getShort(34));
+        assertEquals(0x61746164, wav.getInt(36)); // data
+        assertEquals(wav.capacity() - 44, wav.getInt(40));
+    }
+
+    @Test
+    public void placesNotesAtTheirTimes() throws IOException {
+        final var session = new Session();
+        // Nanoseconds in any base, the first note starts the render.
+        final var start = 5_000_000_000L;
+        session.record(start, 69, 1, -1);
+        session.record(start + 50_000_000, 71, 1, 1);
+        final var wav = render(session);
+        final var second = SAMPLE_RATE / 20;
+
+        assertTrue(getLeft(wav, 0) > 0);
+        assertTrue(getLeft(wav, NOTE_FRAMES - 1) > 0);
+        assertEquals(0, getLeft(wav, NOTE_FRAMES));
+        // Panned to the right, the left channel is silent.
+        assertEquals(0, getLeft(wav, second));
+        assertTrue(wav.getShort(44 + (second * Mixer.CHANNELS + 1) * Short.BYTES) > 0);
+        assertEquals(0, wav.getShort(44 + ((second - 1) * Mixer.CHANNELS + 1) * Short.BYTES));
+        // Until the last note has ended, rounded up to a block.
+        final var frames = (wav.capacity() - 44) / (Mixer.CHANNELS * Short.BYTES);
+        assertEquals((second + NOTE_FRAMES + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE, frames);
+    }
+
+    @Test
+    public void rendersReverbTail() throws IOException {
+        final var dry = new Session();
+        dry.record(0, 69, 1, 0);
+        final var wet = new Session();
+        wet.record(0, 69, 1, 0, .5f);
+        final var dryWav = render(dry);
+        final var wetWav = render(wet);
+        assertTrue(wetWav.capacity() > dryWav.capacity());
+        var tail = false;
+        for (var frame = NOTE_FRAMES; frame < SAMPLE_RATE / 10; ++frame) {
+            tail |= getLeft(wetWav, frame) != 0;
+        }
+        assertTrue(tail);
+    }
+
+    @Test
+    public void emptySessionRendersNothing() throws IOException {
+        assertEquals(44, render(new Session()).capacity());
+    }
+
+    @Test
+    public void copyKeepsRecordedNotes() {
+        final var session = new Session();
+        for (var i = 0; i < 100; ++i) session.record(i, 60 + i % 12, i / 100f, 0);
+        final var copy = session.copy();
+        session.clear();
+        assertEquals(0, session.size());
+        assertEquals(100, copy.size());
+        assertEquals(99, copy.getTime(99));
+        assertEquals(60 + 99 % 12, copy.getSemitone(99), 0);
+        assertEquals(.99f, copy.getGain(99), 0);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.ebraminio.bouncy.synth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class WavetableVoiceTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BLOCK_SIZE = 256;
+
+    private static float[] renderAll(WavetableVoice voice, int maxFrames) {
+        final var samples = new float[maxFrames];
+        var rendered = 0;
+        while (rendered < maxFrames) {
+            final var count = voice.render(samples, rendered, Math.min(BLOCK_SIZE, maxFrames - rendered));
+            rendered += count;
+            if (count < BLOCK_SIZE) break;
+        }
+        return Arrays.copyOf(samples, rendered);
+    }
+
+    @Test
+    public void staysWithinFullScale() {
+        for (final var semitone : new double[]{40, 64, 88}) {
+            final var frequency = GuitarString.getStandardFrequency(semitone);
+            final var samples = renderAll(Wavetable.DEFAULT.pluck(SAMPLE_RATE, frequency, 1), 2 * SAMPLE_RATE);
+            var max = 0f;
+            for (final var sample : samples) max = Math.max(max, Math.abs(sample));
+            assertTrue(max > .1f);
+            assertTrue(max <= 1);
+        }
+    }
+
+    @Test
+    public void endsAfterRelease() {
+        // Released after .15s, falling by 60dB over the .05s release
+        final var samples = renderAll(Wavetable.DEFAULT.pluck(SAMPLE_RATE, 440, .2), 2 * SAMPLE_RATE);
+        assertEquals(.2 * SAMPLE_RATE, samples.length, BLOCK_SIZE);
+    }
+
+    @Test
+    public void playsAtItsPitch() {
+        final var samples = renderAll(Wavetable.DEFAULT.pluck(SAMPLE_RATE, 440, 1), SAMPLE_RATE);
+        var crossings = 0;
+        for (var i = 1; i < SAMPLE_RATE / 2; ++i) {
+            if (samples[i - 1] < 0 && samples[i] >= 0) ++crossings;
+        }
+        // Half a second of a 440Hz wave, the harmonics don't add upward crossings to this table
+        assertEquals(220, crossings, 2);
+    }
+}